@@ -0,0 +1,214 @@
+/**
+ * MIT License (MIT)
+ *
+ * Copyright (c) 2017 Volker Berlin
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * UT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author Volker Berlin
+ * @license: The MIT license <http://opensource.org/licenses/MIT>
+ */
+package com.inet.lib.less;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * A ReaderFactory that hold the content of imported files between multiple compiles. A single instance can be shared
+ * between threads. Files from the file system and from jar files on the file system are validated with the time stamp
+ * and size of the file. All other URLs are not cached and are read on every call.
+ * <p>
+ * The size of the cache is limited to a maximum count of characters. If the limit is exceeded then the least recently
+ * used files are removed. The default limit is {@value #DEFAULT_MAX_SIZE} characters. Call {@link #clear()} to release
+ * the memory earlier, for example if the imported files are no longer used.
+ */
+public class CachedReaderFactory extends ReaderFactory {
+
+    /**
+     * The default maximum count of cached characters.
+     */
+    public static final long                            DEFAULT_MAX_SIZE = 16 * 1024 * 1024;
+
+    private final ReaderFactory                         factory;
+
+    private final long                                  maxSize;
+
+    private final LinkedHashMap<String, CacheEntry>     cache            = new LinkedHashMap<>( 16, 0.75F, true );
+
+    private long                                        size;
+
+    /**
+     * Create a cache which read the files with the default ReaderFactory.
+     */
+    public CachedReaderFactory() {
+        this( new ReaderFactory() );
+    }
+
+    /**
+     * Create a cache which read the files with the given ReaderFactory.
+     *
+     * @param factory
+     *            the factory that read the files on a cache miss
+     */
+    public CachedReaderFactory( @Nonnull ReaderFactory factory ) {
+        this( factory, DEFAULT_MAX_SIZE );
+    }
+
+    /**
+     * Create a cache which read the files with the given ReaderFactory.
+     *
+     * @param factory
+     *            the factory that read the files on a cache miss
+     * @param maxSize
+     *            the maximum count of cached characters
+     */
+    public CachedReaderFactory( @Nonnull ReaderFactory factory, long maxSize ) {
+        this.factory = factory;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Reader create( URL url ) throws IOException {
+        File file = getValidationFile( url );
+        if( file == null ) {
+            return factory.create( url );
+        }
+        String key = url.toExternalForm();
+        // read the validator before the content that a change during reading is detected on the next call
+        long lastModified = file.lastModified();
+        long length = file.length();
+        CacheEntry entry;
+        synchronized( cache ) {
+            entry = cache.get( key );
+        }
+        if( entry == null || entry.lastModified != lastModified || entry.length != length ) {
+            String content;
+            try( Reader reader = factory.create( url ) ) {
+                content = readAll( reader );
+            }
+            entry = new CacheEntry( content, lastModified, length );
+            put( key, entry );
+        }
+        return new StringReader( entry.content );
+    }
+
+    /**
+     * Add an entry and remove the least recently used entries if the cache is too large.
+     *
+     * @param key
+     *            the URL of the file
+     * @param entry
+     *            the new entry
+     */
+    private void put( String key, CacheEntry entry ) {
+        synchronized( cache ) {
+            CacheEntry old = cache.put( key, entry );
+            if( old != null ) {
+                size -= old.content.length();
+            }
+            size += entry.content.length();
+            Iterator<CacheEntry> iterator = cache.values().iterator();
+            while( size > maxSize && iterator.hasNext() ) {
+                size -= iterator.next().content.length();
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Remove all cached content.
+     */
+    public void clear() {
+        synchronized( cache ) {
+            cache.clear();
+            size = 0;
+        }
+    }
+
+    /**
+     * Get the file on the local file system which can validate the content of the URL.
+     *
+     * @param url
+     *            the url of an import
+     * @return the file or null if the URL is not cacheable
+     */
+    @Nullable
+    static File getValidationFile( URL url ) {
+        try {
+            switch( url.getProtocol() ) {
+                case "file":
+                    return new File( url.toURI() );
+                case "jar":
+                    String path = url.getPath();
+                    int idx = path.indexOf( "!/" );
+                    if( idx > 0 ) {
+                        URL jarURL = new URL( path.substring( 0, idx ) );
+                        if( "file".equals( jarURL.getProtocol() ) ) {
+                            return new File( jarURL.toURI() );
+                        }
+                    }
+                    return null;
+                default:
+                    return null;
+            }
+        } catch( URISyntaxException | IOException | IllegalArgumentException ex ) {
+            return null;
+        }
+    }
+
+    /**
+     * The immutable content of a file with the validator values.
+     */
+    private static class CacheEntry {
+
+        private final String content;
+
+        private final long   lastModified;
+
+        private final long   length;
+
+        /**
+         * Create an entry.
+         *
+         * @param content
+         *            the content of the file
+         * @param lastModified
+         *            the time stamp of the file at the time of reading
+         * @param length
+         *            the size of the file at the time of reading
+         */
+        CacheEntry( String content, long lastModified, long length ) {
+            this.content = content;
+            this.lastModified = lastModified;
+            this.length = length;
+        }
+    }
+}
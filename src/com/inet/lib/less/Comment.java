@@ -41,6 +41,14 @@ class Comment implements Formattable {
         this.msg = msg;
     }
 
+    /**
+     * Get the comment text.
+     * @return the text
+     */
+    String getMessage() {
+        return msg;
+    }
+
     /**
      * {@inheritDoc}
      */
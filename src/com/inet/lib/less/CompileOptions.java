@@ -0,0 +1,196 @@
+/**
+ * MIT License (MIT)
+ *
+ * Copyright (c) 2017 Volker Berlin
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * UT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author Volker Berlin
+ * @license: The MIT license <http://opensource.org/licenses/MIT>
+ */
+package com.inet.lib.less;
+
+import java.io.File;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * The options of a compile. All options can be combined. The setters return this instance.
+ * 
+ * <pre>
+ * CompileOptions options = new CompileOptions().setCompress( true ).setSourceMap( new SourceMap( "theme.css" ) );
+ * Less.compile( lessFile, options, writer );
+ * </pre>
+ */
+public class CompileOptions {
+
+    private boolean       compress;
+
+    private boolean       optimize;
+
+    private SourceMap     sourceMap;
+
+    private ReaderFactory readerFactory = new ReaderFactory();
+
+    private File          precompiledFile;
+
+    private ImportCache   importCache;
+
+    /**
+     * If the CSS data should be compressed without any extra formating characters.
+     * 
+     * @return true, if compressed
+     */
+    public boolean isCompress() {
+        return compress;
+    }
+
+    /**
+     * Set if the CSS data should be compressed without any extra formating characters. The default is false.
+     * 
+     * @param compress
+     *            true, if compressed
+     * @return this
+     */
+    @Nonnull
+    public CompileOptions setCompress( boolean compress ) {
+        this.compress = compress;
+        return this;
+    }
+
+    /**
+     * If the compressed CSS data should be optimized.
+     * 
+     * @return true, if optimized
+     */
+    public boolean isOptimize() {
+        return optimize;
+    }
+
+    /**
+     * Set if the compressed CSS data should be optimized. Rules with identical declarations and media blocks with
+     * identical queries are merged and overridden declarations are removed. Ignored if the CSS data are not compressed.
+     * The default is false.
+     * 
+     * @param optimize
+     *            true, if optimized
+     * @return this
+     */
+    @Nonnull
+    public CompileOptions setOptimize( boolean optimize ) {
+        this.optimize = optimize;
+        return this;
+    }
+
+    /**
+     * Get the receiver of the source map.
+     * 
+     * @return the source map or null
+     */
+    @Nullable
+    public SourceMap getSourceMap() {
+        return sourceMap;
+    }
+
+    /**
+     * Set a receiver for the source map of the resulting CSS data. The default is null, no source map is created.
+     * 
+     * @param sourceMap
+     *            the source map or null
+     * @return this
+     */
+    @Nonnull
+    public CompileOptions setSourceMap( @Nullable SourceMap sourceMap ) {
+        this.sourceMap = sourceMap;
+        return this;
+    }
+
+    /**
+     * Get the factory for the readers of imports.
+     * 
+     * @return the factory
+     */
+    @Nonnull
+    public ReaderFactory getReaderFactory() {
+        return readerFactory;
+    }
+
+    /**
+     * Set the factory for the readers of imports. The default is a new {@link ReaderFactory}.
+     * 
+     * @param readerFactory
+     *            the factory
+     * @return this
+     */
+    @Nonnull
+    public CompileOptions setReaderFactory( @Nonnull ReaderFactory readerFactory ) {
+        this.readerFactory = readerFactory;
+        return this;
+    }
+
+    /**
+     * Get the file with precompiled data.
+     * 
+     * @return the file or null
+     */
+    @Nullable
+    public File getPrecompiledFile() {
+        return precompiledFile;
+    }
+
+    /**
+     * Set a file that was written with {@link Less#precompile(File, File, ReaderFactory)}. It is only used if a less
+     * file is compiled. If the precompiled file does not exist, was written from another version of this library or
+     * any of the parsed less files was modified then the less file is parsed again. The default is null.
+     * 
+     * @param precompiledFile
+     *            the file or null
+     * @return this
+     */
+    @Nonnull
+    public CompileOptions setPrecompiledFile( @Nullable File precompiledFile ) {
+        this.precompiledFile = precompiledFile;
+        return this;
+    }
+
+    /**
+     * Get the cache for the parsed imports.
+     * 
+     * @return the cache or null
+     */
+    @Nullable
+    public ImportCache getImportCache() {
+        return importCache;
+    }
+
+    /**
+     * Set a cache for the parsed imports. The same cache should be used for all compiles which import the same files,
+     * for example a Bootstrap theme per customer. The default is null, all imports are parsed on every compile.
+     * 
+     * @param importCache
+     *            the cache or null
+     * @return this
+     */
+    @Nonnull
+    public CompileOptions setImportCache( @Nullable ImportCache importCache ) {
+        this.importCache = importCache;
+        return this;
+    }
+}
@@ -26,6 +26,7 @@
  */
 package com.inet.lib.less;
 
+import java.util.List;
 
 /**
  * A version of the CssFormatter that produce a compressed output.
@@ -34,10 +35,23 @@ class CompressCssFormatter extends CssFormatter {
 
     private boolean wasSemicolon;
 
+    private final boolean optimize;
+
     /**
      * Create an instance.
      */
     CompressCssFormatter() {
+        this( false );
+    }
+
+    /**
+     * Create an instance.
+     * 
+     * @param optimize
+     *            true, if the rules should be merged and overridden declarations removed with the {@link CssOptimizer}
+     */
+    CompressCssFormatter( boolean optimize ) {
+        this.optimize = optimize;
         getFormat().setMinimumIntegerDigits( 0 );
     }
 
@@ -145,9 +159,9 @@ private void checkSemicolon() {
      * {@inheritDoc}
      */
     @Override
-    CssFormatter startBlock( String[] selectors ) {
+    CssFormatter startBlock( String[] selectors, LessObject source ) {
         checkSemicolon();
-        CssFormatter formatter = super.startBlock( selectors );
+        CssFormatter formatter = super.startBlock( selectors, source );
         if( formatter != this && formatter.getOutput().length() > 0 ) { // two rules with same selector was merged
             formatter.semicolon();
         }
@@ -163,6 +177,16 @@ void appendProperty( String name, Expression value ) {
         super.appendProperty( name, value );
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    void optimize( List<CssOutput> results, LessExtendMap lessExtends ) {
+        if( optimize ) {
+            CssOptimizer.optimize( results, lessExtends, this );
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
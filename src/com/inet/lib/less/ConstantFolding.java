@@ -0,0 +1,146 @@
+/**
+ * MIT License (MIT)
+ *
+ * Copyright (c) 2017 Volker Berlin
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * UT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author Volker Berlin
+ * @license: The MIT license <http://opensource.org/licenses/MIT>
+ */
+package com.inet.lib.less;
+
+import java.util.List;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Replace expressions without variables like <code>(10px * 2)</code> or <code>lighten(#336699, 10%)</code> with its
+ * value at parse time. Only numbers and colors are folded. Strings, lists and functions which depend on the context are
+ * evaluated on formatting like before.
+ */
+class ConstantFolding {
+
+    private final CssFormatter formatter = new CssFormatter();
+
+    /**
+     * Fold the expression or the items of a list.
+     *
+     * @param expr
+     *            the parsed expression
+     * @return the folded value or the expression self
+     */
+    @Nonnull
+    Expression fold( @Nonnull Expression expr ) {
+        if( expr.getClass() == Operation.class ) {
+            Operation op = (Operation)expr;
+            switch( op.getOperator() ) {
+                case ' ':
+                case ',':
+                case ';':
+                    fold( op.getOperands() );
+                    return expr;
+            }
+        }
+        try {
+            if( !isConstant( expr ) ) {
+                return expr;
+            }
+            int type = expr.getDataType( formatter );
+            switch( type ) {
+                case Expression.NUMBER:
+                case Expression.PERCENT:
+                case Expression.COLOR:
+                case Expression.RGBA:
+                    break;
+                default:
+                    return expr;
+            }
+            // the string is used as color hint, it must be equals to the formatted output
+            ValueExpression value = new ValueExpression( expr, expr.stringValue( formatter ), type, expr.doubleValue( formatter ), expr.unit( formatter ), null );
+            if( expr.isImportant() ) {
+                value.setImportant();
+            }
+            return value;
+        } catch( RuntimeException ex ) {
+            // the error is reported on formatting
+            return expr;
+        }
+    }
+
+    /**
+     * Fold all expressions of the list in place.
+     *
+     * @param expressions
+     *            the expressions, can be null
+     */
+    void fold( List<Expression> expressions ) {
+        if( expressions != null ) {
+            for( int i = 0; i < expressions.size(); i++ ) {
+                expressions.set( i, fold( expressions.get( i ) ) );
+            }
+        }
+    }
+
+    /**
+     * If the expression is an arithmetic operation or a pure function with only constant numbers and colors as
+     * operands.
+     *
+     * @param expr
+     *            the expression
+     * @return true, if the value is independent of the formatting context
+     */
+    private boolean isConstant( Expression expr ) {
+        Class<?> clazz = expr.getClass();
+        if( clazz == ValueExpression.class ) {
+            switch( expr.getDataType( formatter ) ) {
+                case Expression.NUMBER:
+                case Expression.PERCENT:
+                case Expression.COLOR:
+                case Expression.RGBA:
+                    return true;
+            }
+            return false;
+        }
+        List<Expression> operands;
+        if( clazz == Operation.class ) {
+            Operation op = (Operation)expr;
+            switch( op.getOperator() ) {
+                case '+':
+                case '-':
+                case '*':
+                case '/':
+                    break;
+                default:
+                    return false;
+            }
+            operands = op.getOperands();
+        } else if( clazz == FunctionExpression.class && ((FunctionExpression)expr).isPure() ) {
+            operands = ((FunctionExpression)expr).getParameters();
+        } else {
+            return false;
+        }
+        for( int i = 0; i < operands.size(); i++ ) {
+            if( !isConstant( operands.get( i ) ) ) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
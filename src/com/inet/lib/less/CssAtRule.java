@@ -47,6 +47,15 @@ public CssAtRule( LessObject reader, String css ) {
         this.css = css;
     }
 
+    /**
+     * Get the content of the rule.
+     * 
+     * @return the content
+     */
+    String getCss() {
+        return css;
+    }
+
     /**
      * {@inheritDoc}
      */
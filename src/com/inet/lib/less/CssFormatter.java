@@ -26,6 +26,8 @@
  */
 package com.inet.lib.less;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.net.URL;
 import java.text.DecimalFormat;
 import java.text.DecimalFormatSymbols;
@@ -33,6 +35,9 @@
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -85,6 +90,38 @@ Expression getVariable( String name ) {
         }
     }
 
+    /**
+     * The source positions of the content of a single output buffer. Every mapping has 4 values: the offset in the
+     * buffer, the source index, the line and the column.
+     */
+    private static class Mappings {
+        private int[] data = new int[4 * 8];
+
+        private int   size;
+
+        /**
+         * Add a mapping.
+         * 
+         * @param offset
+         *            the offset in the buffer
+         * @param source
+         *            the index of the less file
+         * @param line
+         *            the line in the less file
+         * @param column
+         *            the column in the less file
+         */
+        void add( int offset, int source, int line, int column ) {
+            if( size == data.length ) {
+                data = Arrays.copyOf( data, 2 * size );
+            }
+            data[size++] = offset;
+            data[size++] = source;
+            data[size++] = line;
+            data[size++] = column;
+        }
+    }
+
     /**
      * The global state of the sequential formatting.
      */
@@ -99,6 +136,8 @@ private static class SharedState {
 
         private int                                          rulesStackModCount;
 
+        private Object                                       stackStamp       = new Object();
+
         private final List<CssOutput>                        results          = new ArrayList<>();
 
         private boolean                                      charsetDirective;
@@ -110,6 +149,22 @@ private static class SharedState {
         private int                                          importantCount;
 
         private LessExtendMap                                lessExtends = new LessExtendMap();
+
+        private SourceMap                                    sourceMap;
+
+        private IdentityHashMap<StringBuilder, Mappings>     mappings;
+
+        private StringBuilder                                lastMappingsOutput;
+
+        private Mappings                                     lastMappings;
+
+        private List<Formattable>                            rules;
+
+        private HashMultimap<String, Rule>                   mixins;
+
+        private SubstringMatcher                             extendTargets;
+
+        private HashSet<String>                              exactExtendTargets;
     }
 
     private final SharedState               state = new SharedState();
@@ -118,6 +173,11 @@ private static class SharedState {
 
     private CssOutput currentOutput;
 
+    /**
+     * Up to this value the number of 1/10^8 units can be calculated exactly enough with a double.
+     */
+    private final static double             MAX_FAST_DECIMAL = (1L << 52) / 1e8;
+
     private final static char[]             DIGITS    = { '0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'a', 'b', 'c', 'd', 'e', 'f' };
 
     private final ArrayDeque<StringBuilder> outputs   = new ArrayDeque<>();
@@ -175,10 +235,225 @@ private CssFormatter copy( @Nullable StringBuilder output ) {
      * @param target the output of the resulting string
      */
     void format( LessParser parser, URL baseURL, StringBuilder target ) {
+        formatRules( parser, baseURL );
+
+        output = target;
+        for( CssOutput result : state.results ) {
+            result.appendTo( target, lessExtends, this );
+        }
+        if( state.sourceMap != null ) {
+            createSourceMap( target );
+        }
+    }
+
+    /**
+     * Format a parsed less file into a separate style sheet for every media query. The rules without a media query and
+     * the header are written to the style sheet with the empty string as key. The media blocks keep their @media rule
+     * so that the style sheets are also correct if they are loaded without a media attribute.
+     * 
+     * @param parser the parser result
+     * @param baseURL the URL of the less file
+     * @return the style sheets in the order of the first occurrence of the media queries
+     */
+    Map<String, String> formatByMedia( LessParser parser, URL baseURL ) {
+        formatRules( parser, baseURL );
+
+        StringBuilder base = new StringBuilder();
+        LinkedHashMap<String, StringBuilder> targets = new LinkedHashMap<>();
+        targets.put( "", base );
+        for( CssOutput result : state.results ) {
+            output = base;
+            if( result.getClass() == CssMediaOutput.class ) {
+                String[] selectors = result.getSelectors();
+                StringBuilder query = new StringBuilder( selectors[0].substring( 6 ).trim() );
+                for( int i = 1; i < selectors.length; i++ ) {
+                    query.append( ", " ).append( selectors[i].trim() );
+                }
+                String key = query.toString();
+                output = targets.get( key );
+                if( output == null ) {
+                    targets.put( key, output = new StringBuilder() );
+                }
+            }
+            result.appendTo( output, lessExtends, this );
+        }
+
+        LinkedHashMap<String, String> styleSheets = new LinkedHashMap<>();
+        for( Entry<String, StringBuilder> entry : targets.entrySet() ) {
+            if( entry.getValue() == base || entry.getValue().length() > 0 ) {
+                styleSheets.put( entry.getKey(), entry.getValue().toString() );
+            }
+        }
+        return styleSheets;
+    }
+
+    /**
+     * Enable the recording of the source positions. Must be called before formatting.
+     * 
+     * @param sourceMap
+     *            the target for the mappings
+     * @param baseURL
+     *            the URL of the less file
+     * @param names
+     *            the paths relative to the main less file for the file names of the imports
+     */
+    void setSourceMap( @Nonnull SourceMap sourceMap, @Nullable URL baseURL, @Nonnull Map<String, String> names ) {
+        String mainFile = "input";
+        if( baseURL != null ) {
+            String path = baseURL.getPath();
+            mainFile = path.substring( path.lastIndexOf( '/' ) + 1 );
+        }
+        sourceMap.reset( mainFile, names );
+        state.sourceMap = sourceMap;
+        state.mappings = new IdentityHashMap<>();
+    }
+
+    /**
+     * Record that the next content of the current output is created from the given less object. Does nothing if no
+     * source map is created.
+     * 
+     * @param source
+     *            the less object
+     */
+    void addMapping( @Nonnull LessObject source ) {
+        if( state.mappings != null && output != null ) {
+            Mappings mappings;
+            if( state.lastMappingsOutput == output ) {
+                mappings = state.lastMappings;
+            } else {
+                mappings = getMappings( output );
+                state.lastMappingsOutput = output;
+                state.lastMappings = mappings;
+            }
+            mappings.add( output.length(), state.sourceMap.getSourceIndex( source.filename ), source.line, source.column );
+        }
+    }
+
+    /**
+     * Get the recorded source positions of an output buffer.
+     * 
+     * @param buffer
+     *            the buffer
+     * @return the mappings, never null
+     */
+    private Mappings getMappings( StringBuilder buffer ) {
+        Mappings mappings = state.mappings.get( buffer );
+        if( mappings == null ) {
+            state.mappings.put( buffer, mappings = new Mappings() );
+        }
+        return mappings;
+    }
+
+    /**
+     * Remove the recorded source positions of an output buffer because its content was changed.
+     * 
+     * @param buffer
+     *            the buffer
+     */
+    void removeMappings( StringBuilder buffer ) {
+        if( state.mappings != null ) {
+            state.mappings.remove( buffer );
+            if( state.lastMappingsOutput == buffer ) {
+                state.lastMappingsOutput = null;
+                state.lastMappings = null;
+            }
+        }
+    }
+
+    /**
+     * Convert the offsets of the recorded mappings in the final CSS into lines and columns.
+     * 
+     * @param target
+     *            the complete CSS
+     */
+    private void createSourceMap( StringBuilder target ) {
+        Mappings mappings = state.mappings.get( target );
+        if( mappings == null ) {
+            return;
+        }
+        SourceMap sourceMap = state.sourceMap;
+        int[] data = mappings.data;
+        int line = 0;
+        int lineStart = 0;
+        int nextLine = target.indexOf( "\n" );
+        for( int i = 0; i < mappings.size; i += 4 ) {
+            int offset = data[i];
+            while( nextLine >= 0 && nextLine < offset ) {
+                line++;
+                lineStart = nextLine + 1;
+                nextLine = target.indexOf( "\n", lineStart );
+            }
+            sourceMap.add( line, offset - lineStart, data[i + 1], data[i + 2], data[i + 3] );
+        }
+    }
+
+    /**
+     * Format the a parsed less file and write the result to a stream. Every CSS output is written as soon as it is
+     * complete and released after it.
+     * 
+     * @param parser the parser result
+     * @param baseURL the URL of the less file
+     * @param target the target of the resulting CSS
+     * @throws IOException if an I/O error occurs on writing
+     */
+    void format( LessParser parser, URL baseURL, Writer target ) throws IOException {
+        formatRules( parser, baseURL );
+
+        StringBuilder buffer = output = new StringBuilder();
+        char[] chars = new char[1024];
+        List<CssOutput> results = state.results;
+        for( int i = 0; i < results.size(); i++ ) {
+            results.get( i ).appendTo( buffer, lessExtends, this );
+            results.set( i, null );
+            int length = buffer.length();
+            if( length > 0 ) {
+                if( chars.length < length ) {
+                    chars = new char[Math.max( length, 2 * chars.length )];
+                }
+                buffer.getChars( 0, length, chars, 0 );
+                target.write( chars, 0, length );
+                buffer.setLength( 0 );
+            }
+        }
+    }
+
+    /**
+     * Copy the recorded source positions of the content of a CSS output to the target before the content is appended
+     * to the target. Does nothing if no source map is created.
+     * 
+     * @param content the content of a CSS output
+     * @param target the target to which the content will be appended
+     */
+    void copyMappings( StringBuilder content, StringBuilder target ) {
+        IdentityHashMap<StringBuilder, Mappings> allMappings = state.mappings;
+        if( allMappings != null ) {
+            Mappings mappings = allMappings.get( content );
+            if( mappings != null ) {
+                Mappings targetMappings = getMappings( target );
+                int base = target.length();
+                int[] data = mappings.data;
+                int length = content.length();
+                for( int i = 0; i < mappings.size && data[i] < length; i += 4 ) {
+                    targetMappings.add( base + data[i], data[i + 1], data[i + 2], data[i + 3] );
+                }
+            }
+        }
+    }
+
+    /**
+     * Format all rules of the parsed less file into the outputs of this formatter.
+     * 
+     * @param parser the parser result
+     * @param baseURL the URL of the less file
+     */
+    private void formatRules( LessParser parser, URL baseURL ) {
         state.baseURL = baseURL;
         addVariables( parser.getVariables() );
         state.isReference = false;
-        for( Formattable rule : parser.getRules() ) {
+        List<Formattable> rules = parser.getRules();
+        state.rules = rules;
+        state.mixins = parser.getMixins();
+        for( Formattable rule : rules ) {
             switch( rule.getType() ) {
                 case Formattable.REFERENCE_INFO:
                     state.isReference = ((ReferenceInfo)rule).isReference();
@@ -196,13 +471,78 @@ void format( LessParser parser, URL baseURL, StringBuilder target ) {
             }
         }
         removeVariables( parser.getVariables() );
+        optimize( state.results, lessExtends );
+    }
 
-        output = target;
-        for( CssOutput result : state.results ) {
-            result.appendTo( target, lessExtends, this );
+    /**
+     * If the declarations of a block can never be part of the output. This is the case for a block of a rule which was
+     * imported with the "reference" keyword if no extends of the less file can match any of its selectors. The
+     * formatting of such declarations can be skipped. Errors in skipped declarations, for example an undefined
+     * variable, are not reported.
+     * 
+     * @param selectors the selectors of the block
+     * @return true, if the declarations are not visible
+     */
+    boolean isHiddenReference( String[] selectors ) {
+        if( !state.isReference || !currentOutput.isReference() ) {
+            return false;
+        }
+        SubstringMatcher targets = state.extendTargets;
+        HashSet<String> exactTargets = state.exactExtendTargets;
+        if( targets == null ) {
+            state.extendTargets = targets = new SubstringMatcher();
+            state.exactExtendTargets = exactTargets = new HashSet<>();
+            addExtendTargets( state.rules, targets, exactTargets );
+            for( Entry<String, List<Rule>> entry : state.mixins.entrySet() ) {
+                for( Rule mixin : entry.getValue() ) {
+                    addExtendTargets( mixin.getProperties(), targets, exactTargets );
+                }
+            }
+        }
+        for( String selector : selectors ) {
+            if( exactTargets.contains( selector ) || targets.containsAny( selector ) ) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Add the selectors that are extended from any extends in the rules and its nested rules. The mixin definitions
+     * are not part of the rules and must be added separately. An extend without the "all" keyword can only match an
+     * equal selector, an extend with "all" keyword any selector that contains it.
+     * 
+     * @param formattables the rules
+     * @param targets the target for the selectors of extends with the "all" keyword
+     * @param exactTargets the target for the selectors of extends without the "all" keyword
+     */
+    private static void addExtendTargets( List<Formattable> formattables, SubstringMatcher targets, HashSet<String> exactTargets ) {
+        for( Formattable formattable : formattables ) {
+            switch( formattable.getType() ) {
+                case Formattable.RULE:
+                    addExtendTargets( ((Rule)formattable).getProperties(), targets, exactTargets );
+                    break;
+                case Formattable.EXTENDS:
+                    LessExtend lessExtend = (LessExtend)formattable;
+                    if( lessExtend.isAll() ) {
+                        targets.add( lessExtend.getExtendingSelector() );
+                    } else {
+                        exactTargets.add( lessExtend.getExtendingSelector() );
+                    }
+                    break;
+            }
         }
     }
 
+    /**
+     * Optimize the formatted outputs before they are written. The default formatter write all outputs unchanged.
+     * 
+     * @param results the outputs in the order of writing
+     * @param lessExtends all extends in the less
+     */
+    void optimize( List<CssOutput> results, LessExtendMap lessExtends ) {
+    }
+
     /**
      * Get the formatter for CSS directives. 
      * @return the header formatter
@@ -241,6 +581,7 @@ void addOutput() {
      * Release an output and delete it.
      */
     void freeOutput() {
+        removeMappings( output );
         state.pool.free( output );
         output = outputs.size() > 0 ? outputs.removeLast() : null;
     }
@@ -278,6 +619,14 @@ int getOutputSize() {
      */
     void setOutputSize( int size ) {
         output.setLength( size );
+        if( state.mappings != null ) {
+            Mappings mappings = state.mappings.get( output );
+            if( mappings != null ) {
+                while( mappings.size > 0 && mappings.data[mappings.size - 4] >= size ) {
+                    mappings.size -= 4;
+                }
+            }
+        }
     }
 
     /**
@@ -347,6 +696,7 @@ void addMixin( Rule mixin, Map<String, Expression> parameters, Map<String, Expre
         scope.mixin = mixin;
         scope.parameters = parameters;
         scope.variables = variables;
+        state.stackStamp = new Object();
     }
 
     /**
@@ -377,6 +727,7 @@ void removeMixin() {
         }
         state.stackIdx--;
         state.rulesStackModCount++;
+        state.stackStamp = new Object();
     }
 
     /**
@@ -500,6 +851,25 @@ int stackID() {
         return state.rulesStackModCount;
     }
 
+    /**
+     * Get a stamp of the variable stack. The stamp is replaced on every change of the stack. If the stamp is the same
+     * then a variable name resolves to the same expression.
+     * 
+     * @return the stamp, compare it by identity
+     */
+    @Nonnull
+    Object stackStamp() {
+        return state.stackStamp;
+    }
+
+    /**
+     * Replace the stamp of the variable stack if the variables of a scope are changed without a change of the stack,
+     * for example by a lazy import.
+     */
+    void variablesChanged() {
+        state.stackStamp = new Object();
+    }
+
     /**
      * Get the current output of the formatter.
      * 
@@ -594,13 +964,48 @@ CssFormatter append( char ch ) {
      */
     CssFormatter append( double value ) {
         if( value == (int)value ) {
-            output.append( Integer.toString( (int)value ) );
+            output.append( (int)value );
         } else {
-            output.append( decFormat.format( value ) );
+            appendDecimal( value );
         }
         return this;
     }
 
+    /**
+     * Append a decimal number without creating a string. The result is equals to the DecimalFormat of this formatter
+     * with a maximum of 8 fraction digits and the rounding mode HALF_EVEN. Large values and values near a rounding tie
+     * are formatted with the DecimalFormat.
+     * 
+     * @param value the number
+     */
+    private void appendDecimal( double value ) {
+        double abs = Math.abs( value );
+        if( abs < MAX_FAST_DECIMAL ) {
+            double scaled = abs * 1e8;
+            // the multiplication can have a rounding error of half an ulp
+            if( Math.abs( scaled - Math.floor( scaled ) - 0.5 ) > Math.ulp( scaled ) ) {
+                long digits = (long)Math.rint( scaled );
+                long integer = digits / 100_000_000;
+                int fraction = (int)(digits % 100_000_000);
+                if( value < 0 ) {
+                    output.append( '-' );
+                }
+                if( integer != 0 || fraction == 0 || decFormat.getMinimumIntegerDigits() > 0 ) {
+                    output.append( integer );
+                }
+                if( fraction != 0 ) {
+                    output.append( '.' );
+                    for( int divisor = 10_000_000; fraction != 0; divisor /= 10 ) {
+                        output.append( DIGITS[fraction / divisor] );
+                        fraction %= divisor;
+                    }
+                }
+                return;
+            }
+        }
+        output.append( decFormat.format( value ) );
+    }
+
     /**
      * Append a value with a unit. In compress mode not all units are written.
      * 
@@ -631,9 +1036,10 @@ void decInsets() {
     /**
      * Start a new block with a list of selectors.
      * @param selectors the selectors
+     * @param source the rule of the block, used for the source map
      * @return this
      */
-    CssFormatter startBlock( String[] selectors ) {
+    CssFormatter startBlock( String[] selectors, @Nonnull LessObject source ) {
         final List<CssOutput> results = state.results;
         if( blockDeep == 0 ) {
             output = null;
@@ -649,9 +1055,9 @@ CssFormatter startBlock( String[] selectors ) {
                 block = copy( null );
                 if( selectors[0].startsWith( "@media" ) ) {
                     block.lessExtends = new LessExtendMap( state.lessExtends );
-                    nextOutput = new CssMediaOutput( selectors, block.output, state.isReference, block.lessExtends ); 
+                    nextOutput = new CssMediaOutput( selectors, block.output, state.isReference, block.lessExtends, source ); 
                 } else {
-                    nextOutput = new CssRuleOutput( selectors, block.output, state.isReference );
+                    nextOutput = new CssRuleOutput( selectors, block.output, state.isReference, source );
                 }
                 results.add( nextOutput );
             } else {
@@ -666,7 +1072,7 @@ CssFormatter startBlock( String[] selectors ) {
                 CssFormatter block = copy( null );
                 block.lessExtends = new LessExtendMap( state.lessExtends );
                 String[] sel = new String[]{ this.currentOutput.getSelectors()[0] + " and " + selectors[0].substring( 6 ).trim() };
-                block.currentOutput = new CssMediaOutput( sel, block.output, state.isReference, block.lessExtends );
+                block.currentOutput = new CssMediaOutput( sel, block.output, state.isReference, block.lessExtends, source );
                 results.add( block.currentOutput );
                 block.insets.setLength( 2 );
                 block.blockDeep = 1;
@@ -676,12 +1082,12 @@ CssFormatter startBlock( String[] selectors ) {
                     CssFormatter block = copy( null );
                     block.incInsets();
                     block.currentOutput = this.currentOutput;
-                    ((CssMediaOutput)this.currentOutput).startBlock( selectors, block.output );
+                    ((CssMediaOutput)this.currentOutput).startBlock( selectors, block.output, source );
                     block.blockDeep++;
                     return block;
                 } else {
                     blockDeep++;
-                    startBlockImpl( selectors );
+                    startBlockImpl( selectors, source );
                     return this;
                 }
             }
@@ -692,14 +1098,18 @@ CssFormatter startBlock( String[] selectors ) {
      * Output a new block and increment the insets.
      * 
      * @param selectors the selectors of the block.
+     * @param source the rule of the block, used for the source map
      */
-    void startBlockImpl( String[] selectors ) {
+    void startBlockImpl( String[] selectors, @Nonnull LessObject source ) {
         for( int i=0; i<selectors.length; i++ ) {
             if( i > 0 ) {
                 output.append( ',' );
                 newline();
             }
             insets();
+            if( i == 0 ) {
+                addMapping( source );
+            }
             append( selectors[i] );
         }
         space();
@@ -745,7 +1155,7 @@ void endBlockImpl() {
      * Append a property to the output like: name: value;
      * 
      * @param name
-     *            the name
+     *            the name with replaced place holders
      * @param value
      *            the value
      * @throws LessException
@@ -756,7 +1166,7 @@ void appendProperty( @Nonnull String name, @Nonnull Expression value ) {
             throw new LessException( "Properties must be inside selector blocks, they cannot be in the root." );
         }
         insets();
-        name = SelectorUtils.replacePlaceHolder( this, name, value );
+        addMapping( value );
         output.append( name ).append( ':' );
         space();
         value.appendTo( this );
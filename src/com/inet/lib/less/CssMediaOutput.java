@@ -41,6 +41,8 @@ class CssMediaOutput extends CssOutput {
 
     private LessExtendMap        lessExtends;
 
+    private LessObject           source;
+
     /**
      * Create a instance.
      * 
@@ -52,12 +54,15 @@ class CssMediaOutput extends CssOutput {
      *            if this content was loaded via reference
      * @param lessExtends
      *            a extends container only for this media rule
+     * @param source
+     *            the rule that has created this output
      */
-    CssMediaOutput( String[] selectors, StringBuilder output, boolean isReference, LessExtendMap lessExtends ) {
+    CssMediaOutput( String[] selectors, StringBuilder output, boolean isReference, LessExtendMap lessExtends, LessObject source ) {
         this.selectors = selectors;
         this.results.add( new CssPlainOutput( output ) );
         this.isReference = isReference;
         this.lessExtends = lessExtends;
+        this.source = source;
     }
 
     /**
@@ -66,7 +71,7 @@ class CssMediaOutput extends CssOutput {
     @Override
     void appendTo( StringBuilder target, LessExtendMap lessExtends, CssFormatter formatter ) {
         if( hasContent( lessExtends ) ) {
-            formatter.startBlockImpl( selectors );
+            formatter.startBlockImpl( selectors, source );
             for( CssOutput cssOutput : results ) {
                 cssOutput.appendTo( target, this.lessExtends, formatter );
             }
@@ -96,6 +101,24 @@ String[] getSelectors() {
         return selectors;
     }
 
+    /**
+     * Get the outputs inside of this media rule.
+     * 
+     * @return the outputs
+     */
+    ArrayList<CssOutput> getResults() {
+        return results;
+    }
+
+    /**
+     * Get the extends container of this media rule.
+     * 
+     * @return the extends
+     */
+    LessExtendMap getLessExtends() {
+        return lessExtends;
+    }
+
     /**
      * Start a block inside the media
      * 
@@ -103,9 +126,11 @@ String[] getSelectors() {
      *            the selectors
      * @param output
      *            a buffer for the content of the rule.
+     * @param source
+     *            the rule of the block
      */
-    void startBlock( String[] selectors , StringBuilder output  ) {
-        this.results.add( new CssRuleOutput( selectors, output, isReference ) );
+    void startBlock( String[] selectors , StringBuilder output, LessObject source ) {
+        this.results.add( new CssRuleOutput( selectors, output, isReference, source ) );
     }
 
     /**
@@ -120,4 +145,12 @@ StringBuilder getOutput() {
         }
         return cssOutput.getOutput();
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    boolean isReference() {
+        return isReference;
+    }
 }
@@ -0,0 +1,552 @@
+/**
+ * MIT License (MIT)
+ *
+ * Copyright (c) 2017 Volker Berlin
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * UT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author Volker Berlin
+ * @license: The MIT license <http://opensource.org/licenses/MIT>
+ */
+package com.inet.lib.less;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * An optional optimizer for the compressed output. It runs over the formatted outputs before they are written:
+ * <li>declarations which are overridden by a later declaration in the same rule are removed
+ * <li>rules with identical declarations are merged into one rule with a selector list
+ * <li>media blocks with identical media queries are merged
+ * <p>
+ * A rule or media block is only moved if no output between them declares a property that can affect the same
+ * property. Declarations with values or rules with selectors that older browsers possibly not understand are never
+ * removed or merged because they are often used as fallback.
+ */
+class CssOptimizer {
+
+    /** The pseudo classes and elements of CSS 2.1 that every browser understands. */
+    private static final HashSet<String>          SAFE_PSEUDOS    = new HashSet<>( Arrays.asList( "first-child", "link", "visited", "active", "hover", "focus", "lang", "before", "after", "first-line", "first-letter" ) );
+
+    /** The CSS 2.1 units. Newer units like rem or vw are often used with a fallback. */
+    private static final HashSet<String>          SAFE_UNITS      = new HashSet<>( Arrays.asList( "", "%", "px", "em", "ex", "in", "cm", "mm", "pt", "pc", "deg", "s", "ms" ) );
+
+    /** Shorthand properties which sub properties does not start with the name of the shorthand. */
+    private static final HashMap<String, String[]> SHORTHANDS     = new HashMap<>();
+
+    static {
+        SHORTHANDS.put( "font", new String[] { "line-height" } );
+        SHORTHANDS.put( "inset", new String[] { "top", "right", "bottom", "left" } );
+        SHORTHANDS.put( "gap", new String[] { "row-gap", "column-gap" } );
+        SHORTHANDS.put( "grid-gap", new String[] { "grid-row-gap", "grid-column-gap", "row-gap", "column-gap" } );
+        SHORTHANDS.put( "columns", new String[] { "column-width", "column-count" } );
+        SHORTHANDS.put( "place-content", new String[] { "align-content", "justify-content" } );
+        SHORTHANDS.put( "place-items", new String[] { "align-items", "justify-items" } );
+        SHORTHANDS.put( "place-self", new String[] { "align-self", "justify-self" } );
+    }
+
+    private static final String[]                  NO_PROPERTIES  = new String[0];
+
+    /**
+     * Optimize a list of outputs. Removed outputs are removed from the list.
+     * 
+     * @param results
+     *            the outputs in the order of writing
+     * @param lessExtends
+     *            the extends of the outputs
+     * @param formatter
+     *            the formatter of the outputs
+     * @return the normalized names of all declared properties or null if there are outputs that can not be analyzed
+     */
+    @Nullable
+    static String[] optimize( @Nonnull List<CssOutput> results, @Nonnull LessExtendMap lessExtends, @Nonnull CssFormatter formatter ) {
+        int size = results.size();
+        String[][] properties = new String[size][];
+        for( int i = 0; i < size; i++ ) {
+            properties[i] = analyze( results.get( i ), lessExtends, formatter );
+        }
+
+        HashMap<String, Integer> candidates = new HashMap<>();
+        for( int j = 0; j < size; j++ ) {
+            CssOutput output = results.get( j );
+            String key = mergeKey( output, properties[j] );
+            if( key == null ) {
+                continue;
+            }
+            Integer idx = candidates.get( key );
+            if( idx != null ) {
+                int i = idx;
+                if( canMove( properties, i, j ) ) {
+                    CssOutput target = results.get( i );
+                    if( target.getClass() == CssRuleOutput.class ) {
+                        CssRuleOutput rule = (CssRuleOutput)target;
+                        rule.setSelectors( mergeSelectors( rule.getSelectors(), output.getSelectors() ) );
+                    } else {
+                        CssMediaOutput media = (CssMediaOutput)target;
+                        media.getResults().addAll( ((CssMediaOutput)output).getResults() );
+                        properties[i] = optimize( media.getResults(), media.getLessExtends(), formatter );
+                    }
+                    results.set( j, null );
+                    properties[j] = NO_PROPERTIES;
+                    continue;
+                }
+            }
+            candidates.put( key, j );
+        }
+
+        // remove the merged outputs and build the union of the properties
+        HashSet<String> union = new HashSet<>();
+        boolean valid = true;
+        int count = 0;
+        for( int i = 0; i < size; i++ ) {
+            CssOutput output = results.get( i );
+            if( output != null ) {
+                results.set( count++, output );
+                if( properties[i] == null ) {
+                    valid = false;
+                } else {
+                    union.addAll( Arrays.asList( properties[i] ) );
+                }
+            }
+        }
+        results.subList( count, size ).clear();
+        return valid ? union.toArray( new String[union.size()] ) : null;
+    }
+
+    /**
+     * Analyze an output and remove overridden declarations of a rule.
+     * 
+     * @param output
+     *            the output
+     * @param lessExtends
+     *            the extends of the output
+     * @param formatter
+     *            the formatter of the output
+     * @return the normalized names of the declared properties or null if the output can not be analyzed
+     */
+    @Nullable
+    private static String[] analyze( CssOutput output, LessExtendMap lessExtends, CssFormatter formatter ) {
+        if( !output.hasContent( lessExtends ) ) {
+            return NO_PROPERTIES;
+        }
+        if( output.getClass() == CssMediaOutput.class ) {
+            CssMediaOutput media = (CssMediaOutput)output;
+            return optimize( media.getResults(), media.getLessExtends(), formatter );
+        }
+        String[] selectors = output.getSelectors();
+        if( selectors == null ) {
+            return null; // plain content like comments or at-rules
+        }
+        if( selectors[0].startsWith( "@" ) ) {
+            String selector = selectors[0];
+            if( selector.equals( "@font-face" ) || (selector.startsWith( "@" ) && selector.contains( "keyframes " )) ) {
+                return NO_PROPERTIES; // does not apply to elements
+            }
+            return null;
+        }
+        StringBuilder body = output.getOutput();
+        ArrayList<String> declarations = split( body );
+        if( declarations == null ) {
+            return null;
+        }
+        if( removeOverridden( declarations ) ) {
+            formatter.removeMappings( body ); // the offsets are no longer valid
+            body.setLength( 0 );
+            for( int i = 0; i < declarations.size(); i++ ) {
+                if( i > 0 ) {
+                    body.append( ';' );
+                }
+                body.append( declarations.get( i ) );
+            }
+        }
+        String[] names = new String[declarations.size()];
+        for( int i = 0; i < names.length; i++ ) {
+            names[i] = normalize( name( declarations.get( i ) ) );
+        }
+        return names;
+    }
+
+    /**
+     * Get the key for merging of an output.
+     * 
+     * @param output
+     *            the output
+     * @param properties
+     *            the properties of the output
+     * @return the key or null if the output can not be merged
+     */
+    @Nullable
+    private static String mergeKey( CssOutput output, String[] properties ) {
+        if( properties == null || properties.length == 0 ) {
+            return null;
+        }
+        if( output.getClass() == CssMediaOutput.class ) {
+            StringBuilder key = new StringBuilder( "@" );
+            for( String selector : output.getSelectors() ) {
+                key.append( selector ).append( '\n' );
+            }
+            return key.toString();
+        }
+        for( String selector : output.getSelectors() ) {
+            if( !isSafeSelector( selector ) ) {
+                return null;
+            }
+        }
+        return output.getOutput().toString();
+    }
+
+    /**
+     * Check if the output j can be moved to the position of output i. This is possible if no output between declares
+     * a property which can affect a property of output j.
+     * 
+     * @param properties
+     *            the properties of all outputs
+     * @param i
+     *            the target position
+     * @param j
+     *            the current position
+     * @return true, if the cascade is not changed
+     */
+    private static boolean canMove( String[][] properties, int i, int j ) {
+        String[] moved = properties[j];
+        for( int k = i + 1; k < j; k++ ) {
+            String[] between = properties[k];
+            if( between == null ) {
+                return false;
+            }
+            for( String name1 : between ) {
+                for( String name2 : moved ) {
+                    if( isOverlapping( name1, name2 ) ) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Check if two normalized property names can affect the same property.
+     * 
+     * @param name1
+     *            first name
+     * @param name2
+     *            second name
+     * @return true, if overlapping
+     */
+    private static boolean isOverlapping( String name1, String name2 ) {
+        if( name1.equals( name2 ) || name1.equals( "all" ) || name2.equals( "all" ) ) {
+            return true;
+        }
+        return isSubProperty( name1, name2 ) || isSubProperty( name2, name1 );
+    }
+
+    /**
+     * Check if a property is set from a shorthand property.
+     * 
+     * @param shorthand
+     *            the possible shorthand
+     * @param name
+     *            the possible sub property
+     * @return true, if name is part of the shorthand
+     */
+    private static boolean isSubProperty( String shorthand, String name ) {
+        if( name.startsWith( shorthand ) && name.length() > shorthand.length() && name.charAt( shorthand.length() ) == '-' ) {
+            return true;
+        }
+        String[] subProperties = SHORTHANDS.get( shorthand );
+        if( subProperties != null ) {
+            for( String subProperty : subProperties ) {
+                if( isOverlapping( subProperty, name ) ) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Normalize a property name for the overlapping check. Vendor prefixes and the hacks for old Internet Explorer are
+     * removed.
+     * 
+     * @param name
+     *            the property name
+     * @return the normalized name
+     */
+    private static String normalize( String name ) {
+        name = name.toLowerCase();
+        if( name.startsWith( "*" ) || name.startsWith( "_" ) ) {
+            name = name.substring( 1 );
+        }
+        if( name.startsWith( "-" ) && !name.startsWith( "--" ) ) {
+            int idx = name.indexOf( '-', 1 );
+            if( idx > 0 ) {
+                name = name.substring( idx + 1 );
+            }
+        }
+        return name;
+    }
+
+    /**
+     * Split the compressed content of a rule into its declarations.
+     * 
+     * @param body
+     *            the content of the rule
+     * @return the declarations or null if the content is not a simple list of declarations
+     */
+    @Nullable
+    private static ArrayList<String> split( StringBuilder body ) {
+        ArrayList<String> declarations = new ArrayList<>();
+        int length = body.length();
+        int start = 0;
+        int parenthesis = 0;
+        char quote = 0;
+        for( int i = 0; i <= length; i++ ) {
+            char ch = i < length ? body.charAt( i ) : ';';
+            if( quote != 0 ) {
+                if( ch == '\\' ) {
+                    i++;
+                } else if( ch == quote ) {
+                    quote = 0;
+                }
+                continue;
+            }
+            switch( ch ) {
+                case '"':
+                case '\'':
+                    quote = ch;
+                    break;
+                case '(':
+                    parenthesis++;
+                    break;
+                case ')':
+                    parenthesis--;
+                    break;
+                case '{':
+                case '}':
+                    return null;
+                case '/':
+                    if( i + 1 < length && body.charAt( i + 1 ) == '*' ) {
+                        return null; // a comment
+                    }
+                    break;
+                case ';':
+                    if( parenthesis == 0 ) {
+                        String declaration = body.substring( start, i );
+                        int idx = declaration.indexOf( ':' );
+                        if( idx <= 0 ) {
+                            return null;
+                        }
+                        declarations.add( declaration );
+                        start = i + 1;
+                    }
+                    break;
+                default:
+            }
+        }
+        return quote == 0 && parenthesis == 0 ? declarations : null;
+    }
+
+    /**
+     * Remove declarations which are overridden by a later declaration of the same property.
+     * 
+     * @param declarations
+     *            the declarations of a rule
+     * @return true, if any declaration was removed
+     */
+    private static boolean removeOverridden( ArrayList<String> declarations ) {
+        boolean removed = false;
+        for( int j = declarations.size() - 1; j > 0; j-- ) {
+            String later = declarations.get( j );
+            String name = name( later );
+            for( int i = j - 1; i >= 0; i-- ) {
+                String earlier = declarations.get( i );
+                if( !name.equalsIgnoreCase( name( earlier ) ) ) {
+                    continue;
+                }
+                String value1 = value( earlier );
+                String value2 = value( later );
+                if( !value1.equals( value2 ) && !(isSafeValue( value1 ) && isSafeValue( value2 )) ) {
+                    break; // possibly a fallback for older browsers
+                }
+                if( isImportant( earlier ) && !isImportant( later ) ) {
+                    declarations.remove( j );
+                    removed = true;
+                    break;
+                }
+                declarations.remove( i );
+                j--;
+                removed = true;
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Get the property name of a declaration.
+     * 
+     * @param declaration
+     *            the declaration
+     * @return the name
+     */
+    private static String name( String declaration ) {
+        return declaration.substring( 0, declaration.indexOf( ':' ) ).trim();
+    }
+
+    /**
+     * Get the value of a declaration without an important flag.
+     * 
+     * @param declaration
+     *            the declaration
+     * @return the value
+     */
+    private static String value( String declaration ) {
+        String value = declaration.substring( declaration.indexOf( ':' ) + 1 ).trim();
+        return isImportant( declaration ) ? value.substring( 0, value.length() - 10 ).trim() : value;
+    }
+
+    /**
+     * If the declaration has the important flag.
+     * 
+     * @param declaration
+     *            the declaration
+     * @return true, if important
+     */
+    private static boolean isImportant( String declaration ) {
+        return declaration.endsWith( "!important" );
+    }
+
+    /**
+     * Check if a value is understood by every browser. It can contains only numbers with CSS 2.1 units, hex colors
+     * and the keyword auto.
+     * 
+     * @param value
+     *            the value
+     * @return true, if the value is safe
+     */
+    private static boolean isSafeValue( String value ) {
+        if( value.isEmpty() ) {
+            return false;
+        }
+        for( String token : value.split( " " ) ) {
+            if( token.equals( "auto" ) ) {
+                continue;
+            }
+            int length = token.length();
+            if( length == 0 ) {
+                return false;
+            }
+            if( token.charAt( 0 ) == '#' ) {
+                if( length != 4 && length != 7 ) {
+                    return false;
+                }
+                for( int i = 1; i < length; i++ ) {
+                    if( Character.digit( token.charAt( i ), 16 ) < 0 ) {
+                        return false;
+                    }
+                }
+                continue;
+            }
+            int i = token.charAt( 0 ) == '-' ? 1 : 0;
+            int digits = 0;
+            for( ; i < length; i++ ) {
+                char ch = token.charAt( i );
+                if( ch >= '0' && ch <= '9' ) {
+                    digits++;
+                } else if( ch != '.' ) {
+                    break;
+                }
+            }
+            if( digits == 0 || !SAFE_UNITS.contains( token.substring( i ).toLowerCase() ) ) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Check if a selector can be part of a selector list. If one browser does not understand any selector of a list
+     * then the complete rule is ignored.
+     * 
+     * @param selector
+     *            the selector
+     * @return true, if the selector is safe
+     */
+    private static boolean isSafeSelector( String selector ) {
+        int length = selector.length();
+        if( length == 0 || selector.indexOf( '\\' ) >= 0 ) {
+            return false;
+        }
+        char quote = 0;
+        boolean attribute = false;
+        for( int i = 0; i < length; i++ ) {
+            char ch = selector.charAt( i );
+            if( quote != 0 ) {
+                if( ch == quote ) {
+                    quote = 0;
+                }
+            } else if( ch == '"' || ch == '\'' ) {
+                quote = ch;
+            } else if( ch == '[' ) {
+                attribute = true;
+            } else if( ch == ']' ) {
+                attribute = false;
+            } else if( ch == ':' && !attribute ) {
+                int start = i + 1;
+                if( start < length && selector.charAt( start ) == ':' ) {
+                    return false; // the double colon syntax of pseudo elements is not part of CSS 2.1
+                }
+                int end = start;
+                while( end < length && (Character.isLetterOrDigit( selector.charAt( end ) ) || selector.charAt( end ) == '-') ) {
+                    end++;
+                }
+                if( !SAFE_PSEUDOS.contains( selector.substring( start, end ).toLowerCase() ) ) {
+                    return false;
+                }
+                i = end - 1;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Merge two selector lists without duplicates.
+     * 
+     * @param selectors1
+     *            the first list
+     * @param selectors2
+     *            the second list
+     * @return the merged list
+     */
+    private static String[] mergeSelectors( String[] selectors1, String[] selectors2 ) {
+        ArrayList<String> merged = new ArrayList<>( Arrays.asList( selectors1 ) );
+        for( String selector : selectors2 ) {
+            if( !merged.contains( selector ) ) {
+                merged.add( selector );
+            }
+        }
+        return merged.toArray( new String[merged.size()] );
+    }
+}
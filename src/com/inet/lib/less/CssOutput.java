@@ -62,4 +62,11 @@ abstract class CssOutput {
      * @return the buffer
      */
     abstract StringBuilder getOutput();
+
+    /**
+     * If this output was created from a less file which was imported with the "reference" keyword.
+     * 
+     * @return true, if reference
+     */
+    abstract boolean isReference();
 }
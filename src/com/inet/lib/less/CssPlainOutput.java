@@ -46,6 +46,7 @@ class CssPlainOutput extends CssOutput {
      */
     @Override
     void appendTo( StringBuilder target, LessExtendMap lessExtends, CssFormatter formatter ) {
+        formatter.copyMappings( output, target );
         target.append( output );
     }
 
@@ -72,4 +73,12 @@ String[] getSelectors() {
     StringBuilder getOutput() {
         return output;
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    boolean isReference() {
+        return false;
+    }
 }
@@ -36,17 +36,20 @@ class CssRuleOutput extends CssOutput {
     private StringBuilder output;
     private boolean isReference;
     private boolean isConcatExtents;
+    private LessObject source;
 
     /**
      * Create a instance.
      * @param selectors the selectors of the rule
      * @param output a buffer for the content of the rule. 
      * @param isReference if this content was loaded via reference
+     * @param source the rule that has created this output
      */
-    CssRuleOutput( String[] selectors, StringBuilder output, boolean isReference ) {
+    CssRuleOutput( String[] selectors, StringBuilder output, boolean isReference, LessObject source ) {
         this.selectors = selectors;
         this.output = output;
         this.isReference = isReference;
+        this.source = source;
     }
 
     /**
@@ -55,7 +58,8 @@ class CssRuleOutput extends CssOutput {
     @Override
     void appendTo( StringBuilder target, LessExtendMap lessExtends, CssFormatter formatter ) {
         if( hasContent(lessExtends) ) {
-            formatter.startBlockImpl( selectors );
+            formatter.startBlockImpl( selectors, source );
+            formatter.copyMappings( output, target );
             target.append( output );
             formatter.endBlockImpl();
         }
@@ -84,6 +88,14 @@ String[] getSelectors() {
         return selectors;
     }
 
+    /**
+     * Replace the selectors of this rule after the extends are concatenated.
+     * @param selectors the new selectors
+     */
+    void setSelectors( String[] selectors ) {
+        this.selectors = selectors;
+    }
+
     /**
      * Get the output of this rule.
      * @return the output
@@ -91,4 +103,12 @@ String[] getSelectors() {
     StringBuilder getOutput() {
         return output;
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    boolean isReference() {
+        return isReference;
+    }
 }
@@ -53,6 +53,16 @@
         this.defaultValues = defaultValues;
     }
 
+    /**
+     * Get the default values.
+     * 
+     * @return the referenced default values
+     */
+    @Nonnull
+    Map<K, V> getDefaultValues() {
+        return defaultValues;
+    }
+
     /**
      * {@inheritDoc}
      */
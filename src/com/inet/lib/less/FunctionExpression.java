@@ -56,6 +56,7 @@
 import java.net.URISyntaxException;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 
 import javax.annotation.Nonnull;
@@ -65,8 +66,188 @@
  */
 class FunctionExpression extends Expression {
 
+    // the ids of the known functions, an unknown function is written as CSS function
+    private static final int FN_CSS            = 0;
+    private static final int FN_PARENTHESIS    = 1;
+    private static final int FN_PERCENTAGE     = 2;
+    private static final int FN_CONVERT        = 3;
+    private static final int FN_ABS            = 4;
+    private static final int FN_CEIL           = 5;
+    private static final int FN_FLOOR          = 6;
+    private static final int FN_MOD            = 7;
+    private static final int FN_PI             = 8;
+    private static final int FN_ROUND          = 9;
+    private static final int FN_MIN            = 10;
+    private static final int FN_MAX            = 11;
+    private static final int FN_SQRT           = 12;
+    private static final int FN_POW            = 13;
+    private static final int FN_SIN            = 14;
+    private static final int FN_COS            = 15;
+    private static final int FN_TAN            = 16;
+    private static final int FN_ACOS           = 17;
+    private static final int FN_ASIN           = 18;
+    private static final int FN_ATAN           = 19;
+    private static final int FN_INCREMENT      = 20;
+    private static final int FN_ADD            = 21;
+    private static final int FN_LENGTH         = 22;
+    private static final int FN_EXTRACT        = 23;
+    private static final int FN_ALPHA          = 24;
+    private static final int FN_RED            = 25;
+    private static final int FN_GREEN          = 26;
+    private static final int FN_BLUE           = 27;
+    private static final int FN_RGBA           = 28;
+    private static final int FN_RGB            = 29;
+    private static final int FN_COLOR          = 30;
+    private static final int FN_ARGB           = 31;
+    private static final int FN_SATURATE       = 32;
+    private static final int FN_DESATURATE     = 33;
+    private static final int FN_GREYSCALE      = 34;
+    private static final int FN_MIX            = 35;
+    private static final int FN_TINT           = 36;
+    private static final int FN_SHADE          = 37;
+    private static final int FN_SATURATION     = 38;
+    private static final int FN_HSL            = 39;
+    private static final int FN_HSLA           = 40;
+    private static final int FN_HUE            = 41;
+    private static final int FN_LIGHTNESS      = 42;
+    private static final int FN_SPIN           = 43;
+    private static final int FN_LIGHTEN        = 44;
+    private static final int FN_DARKEN         = 45;
+    private static final int FN_FADEIN         = 46;
+    private static final int FN_FADEOUT        = 47;
+    private static final int FN_FADE           = 48;
+    private static final int FN_HSV            = 49;
+    private static final int FN_HSVA           = 50;
+    private static final int FN_HSVHUE         = 51;
+    private static final int FN_HSVSATURATION  = 52;
+    private static final int FN_HSVVALUE       = 53;
+    private static final int FN_CONTRAST       = 54;
+    private static final int FN_LUMA           = 55;
+    private static final int FN_LUMINANCE      = 56;
+    private static final int FN_MULTIPLY       = 57;
+    private static final int FN_SCREEN         = 58;
+    private static final int FN_OVERLAY        = 59;
+    private static final int FN_SOFTLIGHT      = 60;
+    private static final int FN_HARDLIGHT      = 61;
+    private static final int FN_DIFFERENCE     = 62;
+    private static final int FN_EXCLUSION      = 63;
+    private static final int FN_AVERAGE        = 64;
+    private static final int FN_NEGATION       = 65;
+    private static final int FN_UNIT           = 66;
+    private static final int FN_ISCOLOR        = 67;
+    private static final int FN_ISNUMBER       = 68;
+    private static final int FN_ISSTRING       = 69;
+    private static final int FN_ISKEYWORD      = 70;
+    private static final int FN_ISPIXEL        = 71;
+    private static final int FN_ISEM           = 72;
+    private static final int FN_ISPERCENTAGE   = 73;
+    private static final int FN_ISUNIT         = 74;
+    private static final int FN_DEFAULT        = 75;
+    private static final int FN_NEGATE         = 76;
+    private static final int FN_FORMAT         = 77;
+    private static final int FN_ESCAPE         = 78;
+    private static final int FN_SVG_GRADIENT   = 79;
+    private static final int FN_COLORIZE_IMAGE = 80;
+    private static final int FN_REPLACE        = 81;
+    private static final int FN_GET_UNIT       = 82;
+    private static final int FN_URL            = 83;
+    private static final int FN_DATA_URI       = 84;
+
+    private static final HashMap<String, Integer> FUNCTIONS = new HashMap<>();
+
+    static {
+        FUNCTIONS.put( "", FN_PARENTHESIS );
+        FUNCTIONS.put( "percentage", FN_PERCENTAGE );
+        FUNCTIONS.put( "convert", FN_CONVERT );
+        FUNCTIONS.put( "abs", FN_ABS );
+        FUNCTIONS.put( "ceil", FN_CEIL );
+        FUNCTIONS.put( "floor", FN_FLOOR );
+        FUNCTIONS.put( "mod", FN_MOD );
+        FUNCTIONS.put( "pi", FN_PI );
+        FUNCTIONS.put( "round", FN_ROUND );
+        FUNCTIONS.put( "min", FN_MIN );
+        FUNCTIONS.put( "max", FN_MAX );
+        FUNCTIONS.put( "sqrt", FN_SQRT );
+        FUNCTIONS.put( "pow", FN_POW );
+        FUNCTIONS.put( "sin", FN_SIN );
+        FUNCTIONS.put( "cos", FN_COS );
+        FUNCTIONS.put( "tan", FN_TAN );
+        FUNCTIONS.put( "acos", FN_ACOS );
+        FUNCTIONS.put( "asin", FN_ASIN );
+        FUNCTIONS.put( "atan", FN_ATAN );
+        FUNCTIONS.put( "increment", FN_INCREMENT );
+        FUNCTIONS.put( "add", FN_ADD );
+        FUNCTIONS.put( "length", FN_LENGTH );
+        FUNCTIONS.put( "extract", FN_EXTRACT );
+        FUNCTIONS.put( "alpha", FN_ALPHA );
+        FUNCTIONS.put( "red", FN_RED );
+        FUNCTIONS.put( "green", FN_GREEN );
+        FUNCTIONS.put( "blue", FN_BLUE );
+        FUNCTIONS.put( "rgba", FN_RGBA );
+        FUNCTIONS.put( "rgb", FN_RGB );
+        FUNCTIONS.put( "color", FN_COLOR );
+        FUNCTIONS.put( "argb", FN_ARGB );
+        FUNCTIONS.put( "saturate", FN_SATURATE );
+        FUNCTIONS.put( "desaturate", FN_DESATURATE );
+        FUNCTIONS.put( "greyscale", FN_GREYSCALE );
+        FUNCTIONS.put( "mix", FN_MIX );
+        FUNCTIONS.put( "tint", FN_TINT );
+        FUNCTIONS.put( "shade", FN_SHADE );
+        FUNCTIONS.put( "saturation", FN_SATURATION );
+        FUNCTIONS.put( "hsl", FN_HSL );
+        FUNCTIONS.put( "hsla", FN_HSLA );
+        FUNCTIONS.put( "hue", FN_HUE );
+        FUNCTIONS.put( "lightness", FN_LIGHTNESS );
+        FUNCTIONS.put( "spin", FN_SPIN );
+        FUNCTIONS.put( "lighten", FN_LIGHTEN );
+        FUNCTIONS.put( "darken", FN_DARKEN );
+        FUNCTIONS.put( "fadein", FN_FADEIN );
+        FUNCTIONS.put( "fadeout", FN_FADEOUT );
+        FUNCTIONS.put( "fade", FN_FADE );
+        FUNCTIONS.put( "hsv", FN_HSV );
+        FUNCTIONS.put( "hsva", FN_HSVA );
+        FUNCTIONS.put( "hsvhue", FN_HSVHUE );
+        FUNCTIONS.put( "hsvsaturation", FN_HSVSATURATION );
+        FUNCTIONS.put( "hsvvalue", FN_HSVVALUE );
+        FUNCTIONS.put( "contrast", FN_CONTRAST );
+        FUNCTIONS.put( "luma", FN_LUMA );
+        FUNCTIONS.put( "luminance", FN_LUMINANCE );
+        FUNCTIONS.put( "multiply", FN_MULTIPLY );
+        FUNCTIONS.put( "screen", FN_SCREEN );
+        FUNCTIONS.put( "overlay", FN_OVERLAY );
+        FUNCTIONS.put( "softlight", FN_SOFTLIGHT );
+        FUNCTIONS.put( "hardlight", FN_HARDLIGHT );
+        FUNCTIONS.put( "difference", FN_DIFFERENCE );
+        FUNCTIONS.put( "exclusion", FN_EXCLUSION );
+        FUNCTIONS.put( "average", FN_AVERAGE );
+        FUNCTIONS.put( "negation", FN_NEGATION );
+        FUNCTIONS.put( "unit", FN_UNIT );
+        FUNCTIONS.put( "iscolor", FN_ISCOLOR );
+        FUNCTIONS.put( "isnumber", FN_ISNUMBER );
+        FUNCTIONS.put( "isstring", FN_ISSTRING );
+        FUNCTIONS.put( "iskeyword", FN_ISKEYWORD );
+        FUNCTIONS.put( "ispixel", FN_ISPIXEL );
+        FUNCTIONS.put( "isem", FN_ISEM );
+        FUNCTIONS.put( "ispercentage", FN_ISPERCENTAGE );
+        FUNCTIONS.put( "isunit", FN_ISUNIT );
+        FUNCTIONS.put( "default", FN_DEFAULT );
+        FUNCTIONS.put( "-", FN_NEGATE );
+        FUNCTIONS.put( "%", FN_FORMAT );
+        FUNCTIONS.put( "escape", FN_ESCAPE );
+        FUNCTIONS.put( "svg-gradient", FN_SVG_GRADIENT );
+        FUNCTIONS.put( "colorize-image", FN_COLORIZE_IMAGE );
+        FUNCTIONS.put( "replace", FN_REPLACE );
+        FUNCTIONS.put( "get-unit", FN_GET_UNIT );
+        FUNCTIONS.put( "url", FN_URL );
+        FUNCTIONS.put( "data-uri", FN_DATA_URI );
+    }
+
     private final List<Expression> parameters;
 
+    private final int              function;
+
+    private final int              exactFunction;
+
     private int                    type;
 
     private double                 doubleValue;
@@ -86,6 +267,101 @@ class FunctionExpression extends Expression {
     FunctionExpression( LessObject obj, @Nonnull String name, @Nonnull Operation parameters ) {
         super( obj, name );
         this.parameters = parameters.getOperands();
+        String lowerCase = name.toLowerCase();
+        Integer id = FUNCTIONS.get( lowerCase );
+        function = id == null ? FN_CSS : id;
+        // output and unit are only special for names in lower case
+        exactFunction = name.equals( lowerCase ) ? function : FN_CSS;
+    }
+
+    /**
+     * Get the parameters of the function.
+     * 
+     * @return the parameters
+     */
+    List<Expression> getParameters() {
+        return parameters;
+    }
+
+    /**
+     * If the result of the function depends only on its parameters. Functions which depend on the context like
+     * default(), read files or return strings are not pure.
+     *
+     * @return true, if the function can be evaluated at parse time with constant parameters
+     */
+    boolean isPure() {
+        switch( function ) {
+            case FN_PARENTHESIS:
+            case FN_PERCENTAGE:
+            case FN_ABS:
+            case FN_CEIL:
+            case FN_FLOOR:
+            case FN_MOD:
+            case FN_PI:
+            case FN_ROUND:
+            case FN_MIN:
+            case FN_MAX:
+            case FN_SQRT:
+            case FN_POW:
+            case FN_SIN:
+            case FN_COS:
+            case FN_TAN:
+            case FN_ACOS:
+            case FN_ASIN:
+            case FN_ATAN:
+            case FN_INCREMENT:
+            case FN_ADD:
+            case FN_ALPHA:
+            case FN_RED:
+            case FN_GREEN:
+            case FN_BLUE:
+            case FN_RGBA:
+            case FN_RGB:
+            case FN_SATURATE:
+            case FN_DESATURATE:
+            case FN_GREYSCALE:
+            case FN_MIX:
+            case FN_TINT:
+            case FN_SHADE:
+            case FN_SATURATION:
+            case FN_HSL:
+            case FN_HSLA:
+            case FN_HUE:
+            case FN_LIGHTNESS:
+            case FN_SPIN:
+            case FN_LIGHTEN:
+            case FN_DARKEN:
+            case FN_FADEIN:
+            case FN_FADEOUT:
+            case FN_FADE:
+            case FN_HSV:
+            case FN_HSVA:
+            case FN_HSVHUE:
+            case FN_HSVSATURATION:
+            case FN_HSVVALUE:
+            case FN_CONTRAST:
+            case FN_LUMA:
+            case FN_LUMINANCE:
+            case FN_MULTIPLY:
+            case FN_SCREEN:
+            case FN_OVERLAY:
+            case FN_SOFTLIGHT:
+            case FN_HARDLIGHT:
+            case FN_DIFFERENCE:
+            case FN_EXCLUSION:
+            case FN_AVERAGE:
+            case FN_NEGATION:
+            case FN_NEGATE:
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Reset the evaluated data type. Required if the function is formatted again with changed variables.
+     */
+    void clearCache() {
+        type = UNKNOWN;
     }
 
     /**
@@ -122,57 +398,57 @@ public boolean booleanValue( CssFormatter formatter ) {
      */
     @Override
     public String unit( CssFormatter formatter ) {
-        switch( super.toString() ) {
-            case "unit":
+        switch( exactFunction ) {
+            case FN_UNIT:
                 if( parameters.size() <= 1 ) {
                     return "";
                 } else {
                     return get( 1 ).stringValue( formatter );
                 }
-            case "convert":
+            case FN_CONVERT:
                 return get( 1 ).stringValue( formatter );
-            case "sin":
-            case "cos":
-            case "tan":
-            case "length":
+            case FN_SIN:
+            case FN_COS:
+            case FN_TAN:
+            case FN_LENGTH:
                 return "";
-            case "acos":
-            case "asin":
-            case "atan":
+            case FN_ACOS:
+            case FN_ASIN:
+            case FN_ATAN:
                 return "rad";
-            case "pow":
+            case FN_POW:
                 return get( 0 ).unit( formatter );
-            case "alpha":
-            case "red":
-            case "green":
-            case "blue":
-            case "rgba":
-            case "rgb":
-            case "argb":
-            case "saturate":
-            case "desaturate":
-            case "greyscale":
-            case "hsl":
-            case "hsla":
-            case "hue":
-            case "spin":
-            case "lighten":
-            case "darken":
-            case "fadein":
-            case "fadeout":
-            case "fade":
-            case "hsv":
-            case "hsva":
-            case "hsvhue":
-            case "contrast":
+            case FN_ALPHA:
+            case FN_RED:
+            case FN_GREEN:
+            case FN_BLUE:
+            case FN_RGBA:
+            case FN_RGB:
+            case FN_ARGB:
+            case FN_SATURATE:
+            case FN_DESATURATE:
+            case FN_GREYSCALE:
+            case FN_HSL:
+            case FN_HSLA:
+            case FN_HUE:
+            case FN_SPIN:
+            case FN_LIGHTEN:
+            case FN_DARKEN:
+            case FN_FADEIN:
+            case FN_FADEOUT:
+            case FN_FADE:
+            case FN_HSV:
+            case FN_HSVA:
+            case FN_HSVHUE:
+            case FN_CONTRAST:
                 // color values has no unit
                 return "";
-            case "saturation":
-            case "lightness":
-            case "hsvsaturation":
-            case "hsvvalue":
-            case "luma":
-            case "luminance":
+            case FN_SATURATION:
+            case FN_LIGHTNESS:
+            case FN_HSVSATURATION:
+            case FN_HSVVALUE:
+            case FN_LUMA:
+            case FN_LUMINANCE:
                 return "%";
         }
         for( int i = 0; i < parameters.size(); i++ ) {
@@ -190,26 +466,26 @@ public String unit( CssFormatter formatter ) {
     @Override
     public void appendTo( CssFormatter formatter ) {
         try {
-            switch( super.toString() ) {
-                case "%":
+            switch( exactFunction ) {
+                case FN_FORMAT:
                     format( formatter );
                     return;
-                case "escape":
+                case FN_ESCAPE:
                     escape( formatter );
                     return;
-                case "argb":
+                case FN_ARGB:
                     double color = getDouble( 0, formatter );
                     int argb = argb( color );
                     formatter.append( '#' );
                     formatter.appendHex( argb, 8 );
                     return;
-                case "svg-gradient":
+                case FN_SVG_GRADIENT:
                     UrlUtils.svgGradient( formatter, parameters );
                     return;
-                case "colorize-image":
+                case FN_COLORIZE_IMAGE:
                     CustomFunctions.colorizeImage( formatter, parameters );
                     return;
-                case "replace":
+                case FN_REPLACE:
                     String str = get( 0 ).stringValue( formatter );
                     formatter.setInlineMode( true );
                     String pattern = get( 1 ).stringValue( formatter );
@@ -232,10 +508,10 @@ public void appendTo( CssFormatter formatter ) {
                     }
                     formatter.append( str );
                     return;
-                case "get-unit":
+                case FN_GET_UNIT:
                     formatter.append( unit( formatter ) );
                     return;
-                case "url":
+                case FN_URL:
                     String url = get( 1 ).stringValue( formatter );
     //                char quoteChar = 0;
     //                boolean quote = false;
@@ -275,7 +551,7 @@ public void appendTo( CssFormatter formatter ) {
     //                }
                     formatter.append( ")" );
                     return;
-                case "data-uri":
+                case FN_DATA_URI:
                     String baseUrl = get( 0 ).stringValue( formatter );
                     String type;
                     if( parameters.size() >= 3 ) {
@@ -287,7 +563,7 @@ public void appendTo( CssFormatter formatter ) {
                     }
                     UrlUtils.dataUri( formatter, baseUrl, url, type );
                     return;
-                case "extract":
+                case FN_EXTRACT:
                     Expression expr = extract( formatter );
                     if( expr != null ) {
                         expr.appendTo( formatter );
@@ -299,7 +575,7 @@ public void appendTo( CssFormatter formatter ) {
                 eval( formatter );
             }
             if( type == STRING ) {
-                if( super.toString().equals( "" ) ) { //parenthesis
+                if( function == FN_PARENTHESIS ) {
                     get( 0 ).appendTo( formatter );
                 } else {
                     appendToCssFunction( formatter );
@@ -334,8 +610,8 @@ private void appendToCssFunction( CssFormatter formatter ) {
      */
     private void eval( CssFormatter formatter ) {
         try {
-            switch( super.toString().toLowerCase() ) {
-                case "": //parenthesis
+            switch( function ) {
+                case FN_PARENTHESIS: //parenthesis
                     if( parameters.size() > 1 ) {
                         throw ((LessObject)get( 0 )).createException( "Unrecognized input" );
                     }
@@ -344,37 +620,37 @@ private void eval( CssFormatter formatter ) {
                         doubleValue = getDouble( 0, formatter );
                     }
                     return;
-                case "percentage":
+                case FN_PERCENTAGE:
                     type = PERCENT;
                     doubleValue = getDouble( 0, formatter ) * 100;
                     return;
-                case "convert":
+                case FN_CONVERT:
                     type = NUMBER;
                     String unit = get( 1 ).stringValue( formatter );
                     Expression param = get( 0 );
                     doubleValue = param.doubleValue( formatter ) * Operation.unitFactor( param.unit( formatter ), unit, false );
                     return;
-                case "abs":
+                case FN_ABS:
                     type = getNumberDataType( formatter );
                     doubleValue = Math.abs( getDouble( 0, formatter ) );
                     return;
-                case "ceil":
+                case FN_CEIL:
                     type = getNumberDataType( formatter );
                     doubleValue = Math.ceil( getDouble( 0, formatter ) );
                     return;
-                case "floor":
+                case FN_FLOOR:
                     type = getNumberDataType( formatter );
                     doubleValue = Math.floor( getDouble( 0, formatter ) );
                     return;
-                case "mod":
+                case FN_MOD:
                     type = NUMBER;
                     doubleValue = getDouble( 0, formatter ) % getDouble( 1, formatter );
                     return;
-                case "pi":
+                case FN_PI:
                     type = NUMBER;
                     doubleValue = Math.PI;
                     return;
-                case "round":
+                case FN_ROUND:
                     type = getNumberDataType( formatter );
                     int decimalPlaces = getInt( 1, 0, formatter );
                     doubleValue = getDouble( 0, formatter );
@@ -386,7 +662,7 @@ private void eval( CssFormatter formatter ) {
                         doubleValue /= 10;
                     }
                     return;
-                case "min":
+                case FN_MIN:
                     type = NUMBER;
                     doubleValue = get( 0 ).doubleValue( formatter );
                     unit = unit( formatter );
@@ -395,7 +671,7 @@ private void eval( CssFormatter formatter ) {
                         doubleValue = Math.min( doubleValue, param.doubleValue( formatter ) / Operation.unitFactor( unit, param.unit( formatter ), true ) );
                     }
                     return;
-                case "max":
+                case FN_MAX:
                     type = NUMBER;
                     doubleValue = get( 0 ).doubleValue( formatter );
                     unit = unit( formatter );
@@ -404,54 +680,54 @@ private void eval( CssFormatter formatter ) {
                         doubleValue = Math.max( doubleValue, param.doubleValue( formatter ) / Operation.unitFactor( unit, param.unit( formatter ), true ) );
                     }
                     return;
-                case "sqrt":
+                case FN_SQRT:
                     type = NUMBER;
                     doubleValue = Math.sqrt( getDouble( 0, formatter ) );
                     return;
-                case "pow":
+                case FN_POW:
                     type = NUMBER;
                     doubleValue = Math.pow( getDouble( 0, formatter ), getDouble( 1, formatter ) );
                     return;
-                case "sin":
+                case FN_SIN:
                     type = NUMBER;
                     doubleValue = Math.sin( getRadians( formatter ) );
                     return;
-                case "cos":
+                case FN_COS:
                     type = NUMBER;
                     doubleValue = Math.cos( getRadians( formatter ) );
                     return;
-                case "tan":
+                case FN_TAN:
                     type = NUMBER;
                     doubleValue = Math.tan( getRadians( formatter ) );
                     return;
-                case "acos":
+                case FN_ACOS:
                     type = NUMBER;
                     doubleValue = Math.acos( getRadians( formatter ) );
                     return;
-                case "asin":
+                case FN_ASIN:
                     type = NUMBER;
                     doubleValue = Math.asin( getRadians( formatter ) );
                     return;
-                case "atan":
+                case FN_ATAN:
                     type = NUMBER;
                     doubleValue = Math.atan( getRadians( formatter ) );
                     return;
-                case "increment":
+                case FN_INCREMENT:
                     type = NUMBER;
                     doubleValue = getDouble( 0, formatter ) + 1;
                     return;
-                case "add":
+                case FN_ADD:
                     type = NUMBER;
                     doubleValue = getDouble( 0, formatter ) + getDouble( 1, formatter );
                     return;
-                case "length":
+                case FN_LENGTH:
                     type = NUMBER;
                     doubleValue = getParamList( formatter ).size();
                     return;
-                case "extract":
+                case FN_EXTRACT:
                     extract( formatter );
                     return;
-                case "alpha":
+                case FN_ALPHA:
                     type = NUMBER;
                     switch( get( 0 ).getDataType( formatter ) ) {
                         case RGBA:
@@ -464,19 +740,19 @@ private void eval( CssFormatter formatter ) {
                             type = STRING;
                     }
                     return;
-                case "red":
+                case FN_RED:
                     type = NUMBER;
                     doubleValue = red( getDouble( 0, formatter ) );
                     return;
-                case "green":
+                case FN_GREEN:
                     type = NUMBER;
                     doubleValue = green( getDouble( 0, formatter ) );
                     return;
-                case "blue":
+                case FN_BLUE:
                     type = NUMBER;
                     doubleValue = blue( getDouble( 0, formatter ) );
                     return;
-                case "rgba":
+                case FN_RGBA:
                     type = RGBA;
                     int r = getColorDigit( 0, formatter );
                     int g = getColorDigit( 1, formatter );
@@ -484,195 +760,195 @@ private void eval( CssFormatter formatter ) {
                     double a = getPercent( 3, formatter );
                     doubleValue = rgba( r, g, b, a );
                     return;
-                case "rgb":
+                case FN_RGB:
                     type = COLOR;
                     r = getColorDigit( 0, formatter );
                     g = getColorDigit( 1, formatter );
                     b = getColorDigit( 2, formatter );
                     doubleValue = rgb( r, g, b );
                     return;
-                case "color":
+                case FN_COLOR:
                     param = get( 0 );
                     String str = UrlUtils.removeQuote( param.stringValue( formatter ) );
                     doubleValue = getColor( new ValueExpression( param, str ), formatter );
                     return;
-                case "argb":
+                case FN_ARGB:
                     type = STRING;
                     return;
-                case "saturate":
+                case FN_SATURATE:
                     type = COLOR;
                     HSL hsl = toHSL( getDouble( 0, formatter ) );
                     hsl.s += getPercent( 1, formatter );
                     doubleValue = hsla( hsl );
                     return;
-                case "desaturate":
+                case FN_DESATURATE:
                     type = COLOR;
                     hsl = toHSL( getDouble( 0, formatter ) );
                     hsl.s -= getPercent( 1, formatter );
                     doubleValue = hsla( hsl );
                     return;
-                case "greyscale":
+                case FN_GREYSCALE:
                     type = COLOR;
                     hsl = toHSL( getDouble( 0, formatter ) );
                     hsl.s = 0;
                     doubleValue = hsla( hsl );
                     return;
-                case "mix":
+                case FN_MIX:
                     double c1 = getColor( 0, formatter );
                     double c2 = getColor( 1, formatter );
                     double weight = getPercent( 2, 0.5, formatter );
                     doubleValue = mix( c1, c2, weight );
                     return;
-                case "tint":
+                case FN_TINT:
                     c1 = getColor( 0, formatter );
                     weight = getPercent( 1, 0.5, formatter );
                     doubleValue = mix( WHITE, c1, weight );
                     return;
-                case "shade":
+                case FN_SHADE:
                     c1 = getColor( 0, formatter );
                     weight = getPercent( 1, 0.5, formatter );
                     doubleValue = mix( BLACK, c1, weight );
                     return;
-                case "saturation":
+                case FN_SATURATION:
                     type = PERCENT;
                     hsl = toHSL( getDouble( 0, formatter ) );
                     doubleValue = hsl.s * 100;
                     return;
-                case "hsl":
+                case FN_HSL:
                     type = COLOR;
                     doubleValue = hsla( getDouble( 0, formatter ), getPercent( 1, formatter ), getPercent( 2, formatter ), 1 );
                     return;
-                case "hsla":
+                case FN_HSLA:
                     type = RGBA;
                     doubleValue = hsla( getDouble( 0, formatter ), getPercent( 1, formatter ), getPercent( 2, formatter ), getPercent( 3, formatter ) );
                     return;
-                case "hue":
+                case FN_HUE:
                     type = NUMBER;
                     hsl = toHSL( getDouble( 0, formatter ) );
                     doubleValue = hsl.h;
                     return;
-                case "lightness":
+                case FN_LIGHTNESS:
                     type = PERCENT;
                     hsl = toHSL( getDouble( 0, formatter ) );
                     doubleValue = hsl.l * 100;
                     return;
-                case "spin":
+                case FN_SPIN:
                     type = COLOR;
                     hsl = toHSL( getDouble( 0, formatter ) );
                     hsl.h += getDouble( 1, formatter );
                     doubleValue = hsla( hsl );
                     return;
-                case "lighten":
+                case FN_LIGHTEN:
                     hsl = toHSL( getColor( 0, formatter ) );
                     hsl.l += getPercent( 1, formatter );
                     doubleValue = hsla( hsl );
                     return;
-                case "darken":
+                case FN_DARKEN:
                     hsl = toHSL( getColor( 0, formatter ) );
                     hsl.l -= getPercent( 1, formatter );
                     doubleValue = hsla( hsl );
                     return;
-                case "fadein":
+                case FN_FADEIN:
                     type = RGBA;
                     hsl = toHSL( getDouble( 0, formatter ) );
                     hsl.a += getPercent( 1, formatter );
                     doubleValue = hsla( hsl );
                     return;
-                case "fadeout":
+                case FN_FADEOUT:
                     type = RGBA;
                     hsl = toHSL( getDouble( 0, formatter ) );
                     hsl.a -= getPercent( 1, formatter );
                     doubleValue = hsla( hsl );
                     return;
-                case "fade":
+                case FN_FADE:
                     type = RGBA;
                     hsl = toHSL( getDouble( 0, formatter ) );
                     hsl.a = getPercent( 1, formatter );
                     doubleValue = hsla( hsl );
                     return;
-                case "hsv":
+                case FN_HSV:
                     type = COLOR;
                     doubleValue = hsva( getDouble( 0, formatter ), getPercent( 1, formatter ), getPercent( 2, formatter ), 1 );
                     return;
-                case "hsva":
+                case FN_HSVA:
                     type = RGBA;
                     doubleValue = hsva( getDouble( 0, formatter ), getPercent( 1, formatter ), getPercent( 2, formatter ), getPercent( 3, formatter ) );
                     return;
-                case "hsvhue":
+                case FN_HSVHUE:
                     doubleValue = toHSV( getColor( 0, formatter ) ).h;
                     type = NUMBER;
                     return;
-                case "hsvsaturation":
+                case FN_HSVSATURATION:
                     doubleValue = toHSV( getColor( 0, formatter ) ).s * 100;
                     type = PERCENT;
                     return;
-                case "hsvvalue":
+                case FN_HSVVALUE:
                     doubleValue = toHSV( getColor( 0, formatter ) ).v * 100;
                     type = PERCENT;
                     return;
-                case "contrast":
+                case FN_CONTRAST:
                     double color = getColor( 0, formatter );
                     double dark = getDouble( 1, BLACK, formatter );
                     double light = getDouble( 2, WHITE, formatter );
                     double threshold = getPercent( 3, 0.43, formatter );
                     doubleValue = contrast( color, dark, light, threshold );
                     return;
-                case "luma":
+                case FN_LUMA:
                     color = getColor( 0, formatter );
                     type = PERCENT;
                     doubleValue = luma( color ) * 100;
                     return;
-                case "luminance":
+                case FN_LUMINANCE:
                     color = getColor( 0, formatter );
                     type = PERCENT;
                     doubleValue = luminance( color ) * 100;
                     return;
-                case "multiply":
+                case FN_MULTIPLY:
                     doubleValue = multiply( getColor( 0, formatter ), getColor( 1, formatter ) );
                     return;
-                case "screen":
+                case FN_SCREEN:
                     doubleValue = screen( getColor( 0, formatter ), getColor( 1, formatter ) );
                     return;
-                case "overlay":
+                case FN_OVERLAY:
                     doubleValue = overlay( getColor( 0, formatter ), getColor( 1, formatter ) );
                     return;
-                case "softlight":
+                case FN_SOFTLIGHT:
                     doubleValue = softlight( getColor( 0, formatter ), getColor( 1, formatter ) );
                     return;
-                case "hardlight":
+                case FN_HARDLIGHT:
                     doubleValue = hardlight( getColor( 0, formatter ), getColor( 1, formatter ) );
                     return;
-                case "difference":
+                case FN_DIFFERENCE:
                     doubleValue = difference( getColor( 0, formatter ), getColor( 1, formatter ) );
                     return;
-                case "exclusion":
+                case FN_EXCLUSION:
                     doubleValue = exclusion( getColor( 0, formatter ), getColor( 1, formatter ) );
                     return;
-                case "average":
+                case FN_AVERAGE:
                     doubleValue = average( getColor( 0, formatter ), getColor( 1, formatter ) );
                     return;
-                case "negation":
+                case FN_NEGATION:
                     doubleValue = negation( getColor( 0, formatter ), getColor( 1, formatter ) );
                     return;
-                case "unit":
+                case FN_UNIT:
                     type = NUMBER;
                     doubleValue = getDouble( 0, formatter );
                     return;
-                case "iscolor":
+                case FN_ISCOLOR:
                     type = BOOLEAN;
                     int type0 = get( 0 ).getDataType( formatter );
                     booleanValue = type0 == COLOR || type0 == RGBA;
                     return;
-                case "isnumber":
+                case FN_ISNUMBER:
                     type = BOOLEAN;
                     type0 = get( 0 ).getDataType( formatter );
                     booleanValue = type0 == NUMBER || type0 == PERCENT;
                     return;
-                case "isstring":
+                case FN_ISSTRING:
                     type = BOOLEAN;
                     booleanValue = get( 0 ).getDataType( formatter ) == STRING;
                     return;
-                case "iskeyword":
+                case FN_ISKEYWORD:
                     type = BOOLEAN;
                     param = get( 0 );
                     if( param.getDataType( formatter ) == STRING ) {
@@ -682,40 +958,40 @@ private void eval( CssFormatter formatter ) {
                         booleanValue = false;
                     }
                     return;
-                case "ispixel":
+                case FN_ISPIXEL:
                     type = BOOLEAN;
                     param = get( 0 );
                     booleanValue = param.unit( formatter ).equals( "px" );
                     return;
-                case "isem":
+                case FN_ISEM:
                     type = BOOLEAN;
                     param = get( 0 );
                     booleanValue = param.unit( formatter ).equals( "em" );
                     return;
-                case "ispercentage":
+                case FN_ISPERCENTAGE:
                     type = BOOLEAN;
                     param = get( 0 );
                     booleanValue = param.unit( formatter ).equals( "%" );
                     return;
-                case "isunit":
+                case FN_ISUNIT:
                     type = BOOLEAN;
                     unit = get( 1 ).stringValue( formatter );
                     param = get( 0 );
                     booleanValue = param.unit( formatter ).equals( unit );
                     return;
-                case "default":
+                case FN_DEFAULT:
                     if( formatter.isGuard() ) {
                         type = BOOLEAN;
                         booleanValue = formatter.getGuardDefault();
                         return;
                     }
                     break;
-                case "-":
+                case FN_NEGATE:
                     type = get( 0 ).getDataType( formatter ) ;
                     doubleValue = -getDouble( 0, formatter );
                     return;
-                case "%":
-                case "escape":
+                case FN_FORMAT:
+                case FN_ESCAPE:
                     type = STRING;
                     return;
             }
@@ -1020,8 +1296,8 @@ private double getDouble( int idx, double defaultValue, CssFormatter formatter )
      */
     @Override
     public Operation listValue( CssFormatter formatter ) {
-        switch( super.toString().toLowerCase() ) {
-            case "extract":
+        switch( function ) {
+            case FN_EXTRACT:
                 return extract( formatter ).listValue( formatter );
         }
         return super.listValue( formatter );
@@ -26,9 +26,13 @@
  */
 package com.inet.lib.less;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
 
 /**
  * A HashMap that hold multiple values for a single key.
@@ -75,7 +79,9 @@ void add( K key, V value ) {
     }
 
     /**
-     * Get all values for the given key. If no key exists then null is return.
+     * Get all values for the given key. If no key exists then null is return. The values of this map are followed by
+     * the values of the parent. If both maps have values then the result is a view of both lists without a copy. The
+     * result must not be modified.
      * 
      * @param key
      *            the key
@@ -87,15 +93,29 @@ List<V> get( K key ) {
             List<V> resultParent = parent.get( key );
             if( result == null ) {
                 return resultParent;
-            } else if( resultParent == null ){
-                return result;
-            } else {
-                result.addAll( resultParent );
+            } else if( resultParent != null ) {
+                return new ConcatList<>( result, resultParent );
             }
         }
         return result;
     }
 
+    /**
+     * Remove all values of this map. The parent is not changed.
+     */
+    void clear() {
+        map.clear();
+    }
+
+    /**
+     * Get all entries of this map without the entries of the parent.
+     * 
+     * @return the entries
+     */
+    Set<Map.Entry<K, List<V>>> entrySet() {
+        return map.entrySet();
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -103,4 +123,47 @@ List<V> get( K key ) {
     public String toString() {
         return map.toString();
     }
+
+    /**
+     * A read only view of the values of a map followed by the values of its parent.
+     *
+     * @param <V>
+     *            the values type
+     */
+    private static class ConcatList<V> extends AbstractList<V> implements RandomAccess {
+
+        private final List<V> first;
+
+        private final List<V> second;
+
+        /**
+         * Create a view of two lists.
+         * 
+         * @param first
+         *            the values of the map
+         * @param second
+         *            the values of the parent
+         */
+        ConcatList( List<V> first, List<V> second ) {
+            this.first = first;
+            this.second = second;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public V get( int index ) {
+            int size = first.size();
+            return index < size ? first.get( index ) : second.get( index - size );
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int size() {
+            return first.size() + second.size();
+        }
+    }
 }
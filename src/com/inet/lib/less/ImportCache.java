@@ -0,0 +1,169 @@
+/**
+ * MIT License (MIT)
+ *
+ * Copyright (c) 2017 Volker Berlin
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * UT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author Volker Berlin
+ * @license: The MIT license <http://opensource.org/licenses/MIT>
+ */
+package com.inet.lib.less;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map.Entry;
+
+import javax.annotation.Nullable;
+
+/**
+ * A cache of the parsed less files which are imported on the root level. A later compile loads an unchanged import
+ * from the cache instead of reading and parsing the file again. A single instance can be shared between threads. Only
+ * files from the file system and from jar files on the file system are cached. They are validated with the time stamp
+ * and size of the file. The main less data are always parsed.
+ * <p>
+ * The parse results are saved in a binary form and every compile loads its own copy, because the formatting changes
+ * the state of the parsed rules. If a compile has imports with variables in the file name then its imports are not
+ * added to the cache.
+ * <p>
+ * The size of the cache is limited to a maximum count of bytes. If the limit is exceeded then the least recently used
+ * files are removed. The default limit is {@value #DEFAULT_MAX_SIZE} bytes. Call {@link #clear()} to release the
+ * memory earlier.
+ */
+public class ImportCache {
+
+    /**
+     * The default maximum count of cached bytes.
+     */
+    public static final long                           DEFAULT_MAX_SIZE = 16 * 1024 * 1024;
+
+    private final long                                 maxSize;
+
+    private final LinkedHashMap<String, ImportSegment> cache            = new LinkedHashMap<>( 16, 0.75F, true );
+
+    private long                                       size;
+
+    /**
+     * Create a cache with the default size limit.
+     */
+    public ImportCache() {
+        this( DEFAULT_MAX_SIZE );
+    }
+
+    /**
+     * Create a cache with the given size limit.
+     *
+     * @param maxSize
+     *            the maximum count of cached bytes
+     */
+    public ImportCache( long maxSize ) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Parse the less data and use the cached imports.
+     *
+     * @param baseURL
+     *            the baseURL for import of external less data.
+     * @param lessData
+     *            the input less data
+     * @param readerFactory
+     *            A factory for the readers for imports.
+     * @return the parser with the parsed rules
+     * @throws IOException
+     *             if an I/O error occurs reading the less data
+     */
+    LessParser parse( URL baseURL, Reader lessData, ReaderFactory readerFactory ) throws IOException {
+        String data = ReaderFactory.readAll( lessData );
+        HashMap<String, ImportSegment> usedSegments = new HashMap<>();
+        LessParser parser = new LessParser();
+        if( !parser.parse( baseURL, new StringReader( data ), readerFactory, this, usedSegments ) ) {
+            // a modified file has changed the imports of a cached file, the cached files are replaced
+            usedSegments.clear();
+            parser = new LessParser();
+            parser.parse( baseURL, new StringReader( data ), readerFactory, null, usedSegments );
+        }
+        // a lazy import change the variables of the parser and the segments can not be replayed
+        if( parser.getLazyImports() == null ) {
+            for( Entry<String, ImportSegment> entry : usedSegments.entrySet() ) {
+                ImportSegment segment = entry.getValue();
+                if( !segment.isSerialized() && segment.isValid() ) {
+                    try {
+                        put( entry.getKey(), new ImportSegment( segment ) );
+                    } catch( IOException ex ) {
+                        // the parse tree has a type which can not be saved, the file is parsed on every compile
+                    }
+                }
+            }
+        }
+        return parser;
+    }
+
+    /**
+     * Get a cached segment.
+     *
+     * @param key
+     *            the key of the import, see {@link ImportSegment.Import#key}
+     * @return the segment or null
+     */
+    @Nullable
+    ImportSegment get( String key ) {
+        synchronized( cache ) {
+            return cache.get( key );
+        }
+    }
+
+    /**
+     * Add a segment and remove the least recently used segments if the cache is too large.
+     *
+     * @param key
+     *            the key of the import
+     * @param segment
+     *            the serialized segment
+     */
+    private void put( String key, ImportSegment segment ) {
+        synchronized( cache ) {
+            ImportSegment old = cache.put( key, segment );
+            if( old != null ) {
+                size -= old.getDataSize();
+            }
+            size += segment.getDataSize();
+            Iterator<ImportSegment> iterator = cache.values().iterator();
+            while( size > maxSize && iterator.hasNext() ) {
+                size -= iterator.next().getDataSize();
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Remove all cached imports.
+     */
+    public void clear() {
+        synchronized( cache ) {
+            cache.clear();
+            size = 0;
+        }
+    }
+}
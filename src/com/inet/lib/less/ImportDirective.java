@@ -0,0 +1,246 @@
+/**
+ * MIT License (MIT)
+ *
+ * Copyright (c) 2017 Volker Berlin
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * UT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author Volker Berlin
+ * @license: The MIT license <http://opensource.org/licenses/MIT>
+ */
+package com.inet.lib.less;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.StringTokenizer;
+
+import javax.annotation.Nullable;
+
+/**
+ * The parameters of an <code>@import</code> directive like the keywords, the file name and the media query. It is
+ * used for the import and for the prefetch of the imported files that both resolve the same URL.
+ */
+class ImportDirective {
+
+    private String  filename;
+
+    private String  media;
+
+    private boolean isReference;
+
+    private boolean isCss;
+
+    private boolean isLess;
+
+    private boolean isMultiple;
+
+    private boolean isInline;
+
+    private boolean isOptional;
+
+    /**
+     * Parse the content of an import directive.
+     * 
+     * @param name
+     *            the content of the directive like a file name and keywords
+     * @param isReference
+     *            true, if the current file is imported as reference
+     * @param isMultiple
+     *            true, if the current file is imported with the keyword multiple
+     * @throws LessException
+     *             if a keyword is unknown
+     */
+    ImportDirective( String name, boolean isReference, boolean isMultiple ) {
+        this.isReference = isReference;
+        this.isMultiple = isMultiple;
+        String filename = name.trim();
+        if( filename.startsWith( "(" ) ) {
+            int endIdx = filename.indexOf( ')', 1);
+            if( endIdx > 0 ) {
+                StringTokenizer tokenizer = new StringTokenizer( filename.substring( 1, endIdx ), "," );
+                filename = name.trim().substring( endIdx + 1 ).trim();
+                while( tokenizer.hasMoreTokens() ) {
+                    String keywordStr = tokenizer.nextToken().trim();
+                    switch( keywordStr ) {
+                        case "inline":
+                            isInline = true;
+                            break;
+                        case "optional":
+                            isOptional = true;
+                            break;
+                        case "once":
+                            this.isMultiple = false;
+                            break;
+                        case "multiple":
+                            this.isMultiple = true;
+                            break;
+                        case "less":
+                            isLess = true;
+                            isCss = false;
+                            break;
+                        case "css":
+                            isCss = true;
+                            isLess = false;
+                            break;
+                        case "reference":
+                            this.isReference = true;
+                            break;
+                        default:
+                            throw new LessException( "Unknown @import keyword: " + keywordStr );
+                    }
+                }
+            }
+        }
+
+        int i;
+        boolean isURL;
+        if( filename.startsWith( "url(" ) ) {
+            i = 4;
+            isURL = true;
+        } else {
+            i = 0;
+            isURL = false;
+        }
+        StringBuilder builder = new StringBuilder();
+        char quote = 0;
+        LOOP:
+        for( ; i < filename.length(); i++ ) {
+            char ch = filename.charAt( i );
+            switch(ch){
+                case '\"':
+                case '\'':
+                    if( quote == 0 ) {
+                        quote = ch;
+                    } else {
+                        quote = 0;
+                        if( !isURL ) {
+                            break LOOP;
+                        }
+                    }
+                    break;
+                case '\\':
+                    builder.append( filename.charAt( ++i ) );
+                    break;
+                case ')':
+                    if( quote == 0 ) {
+                        break LOOP;
+                    }
+                    //$FALL-THROUGH$
+                default:
+                    builder.append( ch );
+            }
+        }
+        if( i < filename.length() - 1 ) {
+            //additional content after url(...)
+            media = filename.substring( i + 1 ).trim();
+        }
+        this.filename = builder.toString().trim();
+    }
+
+    /**
+     * Resolve the URL of the imported file. A file name without extension get the extension ".less".
+     * 
+     * @param baseURL
+     *            the URL of the current file
+     * @return the URL or null if a CSS <code>@import</code> directive must be written and the file is not imported
+     * @throws MalformedURLException
+     *             if the URL is invalid
+     */
+    @Nullable
+    URL resolve( @Nullable URL baseURL ) throws MalformedURLException {
+        if( !isLess && !isInline && (isCss || filename.endsWith( "css" )) ) {
+            // filenames ends with "css" will not be inline else a CSS @import directive is written
+            return null;
+        }
+        URL url = baseURL == null ? new URL( filename ) : new URL( baseURL, filename );
+        if( !isLess && !isInline && url.getPath().endsWith( "css" ) ) {
+            // URL path ends with "css" will not be inline else a CSS @import directive is written
+            return null;
+        }
+        if( "file".equals( url.getProtocol() ) && filename.lastIndexOf( '.' ) <= filename.lastIndexOf( '/' ) ) {
+            filename += ".less";
+            url = baseURL == null ? new URL( filename ) : new URL( baseURL, filename );
+        }
+        return url;
+    }
+
+    /**
+     * If the file name contains variables and the import must be resolved on formatting.
+     * 
+     * @return true, if lazy
+     */
+    boolean isLazy() {
+        return filename.contains( "@{" );
+    }
+
+    /**
+     * The unquoted file name. After {@link #resolve(URL)} with an added extension.
+     * 
+     * @return the file name
+     */
+    String getFilename() {
+        return filename;
+    }
+
+    /**
+     * The media query after the file name.
+     * 
+     * @return the media query or null
+     */
+    @Nullable
+    String getMedia() {
+        return media;
+    }
+
+    /**
+     * If the keyword "reference" was set or the current file is imported as reference.
+     * 
+     * @return true, if reference
+     */
+    boolean isReference() {
+        return isReference;
+    }
+
+    /**
+     * If the file can be imported multiple times.
+     * 
+     * @return true, if multiple
+     */
+    boolean isMultiple() {
+        return isMultiple;
+    }
+
+    /**
+     * If the keyword "inline" was set.
+     * 
+     * @return true, if inline
+     */
+    boolean isInline() {
+        return isInline;
+    }
+
+    /**
+     * If the keyword "optional" was set.
+     * 
+     * @return true, if optional
+     */
+    boolean isOptional() {
+        return isOptional;
+    }
+}
@@ -0,0 +1,386 @@
+/**
+ * MIT License (MIT)
+ *
+ * Copyright (c) 2017 Volker Berlin
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * UT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author Volker Berlin
+ * @license: The MIT license <http://opensource.org/licenses/MIT>
+ */
+package com.inet.lib.less;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.Nonnull;
+
+/**
+ * The parse result of a single less file which was imported on root level. It records all changes on the root of the
+ * parser in the order of parsing: added rules, variables, mixins and the imports of other files. If the file was not
+ * modified then the changes can be replayed without parsing the file again.
+ * <p>
+ * A serialized copy saves the changes in the binary format of {@link PrecompiledLess}. Every replay creates new
+ * objects, so that the copy can be used by multiple compiles at the same time.
+ */
+class ImportSegment {
+
+    private final Import            source;
+
+    private final Stamp             stamp;
+
+    private final ArrayList<Stamp>  dependencies = new ArrayList<>();
+
+    private final ArrayList<Object> events       = new ArrayList<>();
+
+    private final byte[]            data;
+
+    private boolean                 changed;
+
+    /**
+     * Create a new empty segment before parsing of the file.
+     *
+     * @param source
+     *            the import that parse the file
+     */
+    ImportSegment( @Nonnull Import source ) {
+        this.source = source;
+        this.stamp = new Stamp( source.url );
+        this.data = null;
+    }
+
+    /**
+     * Create a serialized copy of a parsed segment.
+     *
+     * @param segment
+     *            the segment after parsing of the file and before formatting
+     * @throws IOException
+     *             if the parse tree contains a type which can not be serialized
+     */
+    ImportSegment( @Nonnull ImportSegment segment ) throws IOException {
+        this.source = segment.source;
+        this.stamp = segment.stamp;
+        this.dependencies.addAll( segment.dependencies );
+        this.data = PrecompiledLess.writeSegment( segment.events );
+    }
+
+    /**
+     * If this segment is a serialized copy.
+     *
+     * @return true, if serialized
+     */
+    boolean isSerialized() {
+        return data != null;
+    }
+
+    /**
+     * Get the size of the serialized data.
+     *
+     * @return the count of bytes or 0 if not serialized
+     */
+    int getDataSize() {
+        return data == null ? 0 : data.length;
+    }
+
+    /**
+     * Record a formattable that was added to the root of the parser.
+     *
+     * @param formattable
+     *            the added formattable
+     */
+    void add( Formattable formattable ) {
+        events.add( formattable );
+    }
+
+    /**
+     * Record a variable that was set on the root of the parser.
+     *
+     * @param name
+     *            the name of the variable
+     * @param value
+     *            the value
+     */
+    void addVariable( String name, Expression value ) {
+        events.add( new Put( false, name, value ) );
+    }
+
+    /**
+     * Record a mixin that was added to the parser.
+     *
+     * @param name
+     *            the selector of the mixin
+     * @param rule
+     *            the mixin
+     */
+    void addMixin( String name, Rule rule ) {
+        events.add( new Put( true, name, rule ) );
+    }
+
+    /**
+     * Record an import on the root of the parser that is saved as own segment.
+     *
+     * @param child
+     *            the import
+     */
+    void addImport( Import child ) {
+        events.add( child );
+    }
+
+    /**
+     * Record an import which is parsed as part of this segment, for example an import inside of a rule.
+     *
+     * @param url
+     *            the URL of the imported file
+     * @param isMultiple
+     *            true, if the import has the keyword "multiple"
+     * @param imported
+     *            true, if the file was imported, false if it was already imported before
+     */
+    void addImport( URL url, boolean isMultiple, boolean imported ) {
+        events.add( new ImportCheck( url, isMultiple, imported ) );
+    }
+
+    /**
+     * Add a file which content is part of this segment.
+     *
+     * @param url
+     *            the URL of the file
+     */
+    void addDependency( URL url ) {
+        dependencies.add( new Stamp( url ) );
+    }
+
+    /**
+     * Mark this segment as changed if it depends on the URL.
+     *
+     * @param url
+     *            the URL of a changed file
+     */
+    void changed( URL url ) {
+        String str = url.toExternalForm();
+        if( str.equals( source.url.toExternalForm() ) ) {
+            changed = true;
+        }
+        for( Stamp dependency : dependencies ) {
+            if( str.equals( dependency.url.toExternalForm() ) ) {
+                changed = true;
+            }
+        }
+    }
+
+    /**
+     * If this segment can be replayed. The file and all dependencies must be unchanged.
+     *
+     * @return true, if valid
+     */
+    boolean isValid() {
+        if( changed || !stamp.isValid() ) {
+            return false;
+        }
+        for( Stamp dependency : dependencies ) {
+            if( !dependency.isValid() ) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Apply all recorded changes to the parser.
+     *
+     * @param parser
+     *            the parser that currently load the root level
+     * @return false, if the imports of other segments has changed the result of this segment. Then a new parsing is
+     *         needed.
+     * @throws IOException
+     *             If any I/O error occur on reading a changed file.
+     */
+    boolean replay( LessParser parser ) throws IOException {
+        List<Object> events = data == null ? this.events : PrecompiledLess.readSegment( data, parser.getMixins() );
+        for( Object event : events ) {
+            if( event instanceof Formattable ) {
+                parser.add( (Formattable)event );
+            } else if( event.getClass() == Put.class ) {
+                Put put = (Put)event;
+                if( put.mixin ) {
+                    parser.getMixins().add( put.name, (Rule)put.value );
+                } else {
+                    parser.getVariables().put( put.name, (Expression)put.value );
+                }
+            } else if( event.getClass() == Import.class ) {
+                if( !parser.importSegment( (Import)event ) ) {
+                    return false;
+                }
+            } else {
+                ImportCheck check = (ImportCheck)event;
+                if( (parser.getImports().add( check.url ) || check.isMultiple) != check.imported ) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * An import of a less file on the root level.
+     */
+    static class Import {
+
+        final URL     url;
+
+        final String  filename;
+
+        final URL     relativeURL;
+
+        final boolean isReference;
+
+        final boolean isMultiple;
+
+        final boolean isReferenceSwitch;
+
+        final boolean isOptional;
+
+        final String  key;
+
+        /**
+         * Create a new instance.
+         *
+         * @param url
+         *            the resolved URL of the file
+         * @param filename
+         *            the file name for messages or null for the main file
+         * @param relativeURL
+         *            the URL relative to the main file
+         * @param isReference
+         *            true, if the file is imported as reference
+         * @param isMultiple
+         *            true, if the import has the keyword "multiple"
+         * @param isReferenceSwitch
+         *            true, if the reference flag is different to the importing file
+         * @param isOptional
+         *            true, if the import has the keyword "optional"
+         */
+        Import( URL url, String filename, URL relativeURL, boolean isReference, boolean isMultiple, boolean isReferenceSwitch, boolean isOptional ) {
+            this.url = url;
+            this.filename = filename;
+            this.relativeURL = relativeURL;
+            this.isReference = isReference;
+            this.isMultiple = isMultiple;
+            this.isReferenceSwitch = isReferenceSwitch;
+            this.isOptional = isOptional;
+            // all values that can change the result of the parser
+            this.key = url.toExternalForm() + '\n' + filename + '\n' + relativeURL.toExternalForm() + '\n' + isReference + '\n' + isMultiple;
+        }
+    }
+
+    /**
+     * A variable or mixin that was added to the root of the parser.
+     */
+    static class Put {
+
+        final boolean mixin;
+
+        final String  name;
+
+        final Object  value;
+
+        /**
+         * Create a new instance.
+         *
+         * @param mixin
+         *            true for a mixin, false for a variable
+         * @param name
+         *            the name
+         * @param value
+         *            the value
+         */
+        Put( boolean mixin, String name, Object value ) {
+            this.mixin = mixin;
+            this.name = name;
+            this.value = value;
+        }
+    }
+
+    /**
+     * An import that is part of the segment. On replay it must have the same result.
+     */
+    static class ImportCheck {
+
+        final URL     url;
+
+        final boolean isMultiple;
+
+        final boolean imported;
+
+        /**
+         * Create a new instance.
+         *
+         * @param url
+         *            the URL of the imported file
+         * @param isMultiple
+         *            true, if the import has the keyword "multiple"
+         * @param imported
+         *            the result on parsing
+         */
+        ImportCheck( URL url, boolean isMultiple, boolean imported ) {
+            this.url = url;
+            this.isMultiple = isMultiple;
+            this.imported = imported;
+        }
+    }
+
+    /**
+     * The time stamp and size of a file at the time of parsing.
+     */
+    private static class Stamp {
+
+        private final URL  url;
+
+        private final File file;
+
+        private final long lastModified;
+
+        private final long length;
+
+        /**
+         * Save the current values of the file.
+         *
+         * @param url
+         *            the URL of the file
+         */
+        Stamp( URL url ) {
+            this.url = url;
+            this.file = CachedReaderFactory.getValidationFile( url );
+            this.lastModified = file == null ? 0 : file.lastModified();
+            this.length = file == null ? 0 : file.length();
+        }
+
+        /**
+         * If the file is unchanged. URLs that can not be validated are never valid.
+         *
+         * @return true, if unchanged
+         */
+        boolean isValid() {
+            return file != null && file.lastModified() == lastModified && file.length() == length;
+        }
+    }
+}
@@ -0,0 +1,213 @@
+/**
+ * MIT License (MIT)
+ *
+ * Copyright (c) 2017 Volker Berlin
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * UT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author Volker Berlin
+ * @license: The MIT license <http://opensource.org/licenses/MIT>
+ */
+package com.inet.lib.less;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map.Entry;
+
+import javax.annotation.Nonnull;
+
+/**
+ * A long living compile session for a less file. Between two compiles only the modified files are parsed again. The
+ * rules of all other files are reused. Files from the file system and from jar files on the file system are detected
+ * with the time stamp and size of the file. Content from other sources must be reported with {@link #changed(URL)}.
+ * <p>
+ * Only files which are imported on the root level can be reused. An import inside of a rule is part of the importing
+ * file. If the less file has imports with variables in the file name then every compile parse all files.
+ * <p>
+ * A instance is thread safe but the compiles are executed sequentially.
+ */
+public class IncrementalCompiler {
+
+    private final URL                            baseURL;
+
+    private final ReaderFactory                  readerFactory;
+
+    private final HashMultimap<String, Rule>     mixins   = new HashMultimap<>();
+
+    private HashMap<String, ImportSegment>       segments = new HashMap<>();
+
+    /**
+     * Create a session for a less file.
+     *
+     * @param lessFile
+     *            the main less file
+     * @throws IOException
+     *             if the file name can not converted to an URL
+     */
+    public IncrementalCompiler( @Nonnull File lessFile ) throws IOException {
+        this( lessFile.toURI().toURL(), new ReaderFactory() );
+    }
+
+    /**
+     * Create a session for a less file.
+     *
+     * @param baseURL
+     *            the URL of the main less file
+     * @param readerFactory
+     *            A factory for the readers for the main less file and the imports.
+     */
+    public IncrementalCompiler( @Nonnull URL baseURL, @Nonnull ReaderFactory readerFactory ) {
+        this.baseURL = baseURL;
+        this.readerFactory = readerFactory;
+    }
+
+    /**
+     * Compile the less file. Only files that are modified since the last call are parsed.
+     *
+     * @param compress
+     *            true, if the CSS data should be compressed without any extra formating characters.
+     * @return the resulting CSS data
+     * @throws LessException
+     *             if any error occur on compiling.
+     */
+    public synchronized String compile( boolean compress ) throws LessException {
+        HashMap<String, ImportSegment> usedSegments = new HashMap<>();
+        mixins.clear();
+        LessParser parser = new LessParser();
+        if( !parser.parse( baseURL, readerFactory, mixins, segments, usedSegments ) ) {
+            // a changed file has changed the imports of an unchanged file
+            usedSegments.clear();
+            mixins.clear();
+            parser = new LessParser();
+            parser.parse( baseURL, readerFactory, mixins, new HashMap<String, ImportSegment>(), usedSegments );
+        }
+        // a lazy import change the variables of the parser and can not be replayed
+        segments = parser.getLazyImports() == null ? usedSegments : new HashMap<String, ImportSegment>();
+
+        clearCache( parser );
+        return Less.format( parser, baseURL, compress );
+    }
+
+    /**
+     * Mark a file as modified. This is only needed for content which is not read from the file system.
+     *
+     * @param url
+     *            the URL of the file like the ReaderFactory receive it.
+     */
+    public synchronized void changed( @Nonnull URL url ) {
+        for( ImportSegment segment : segments.values() ) {
+            segment.changed( url );
+        }
+    }
+
+    /**
+     * Remove all parsed data. The next compile parse all files.
+     */
+    public synchronized void clear() {
+        segments = new HashMap<>();
+    }
+
+    /**
+     * Reset all evaluated values of the reused rules. A changed variable can change the type of an expression.
+     *
+     * @param parser
+     *            the parser with the loaded rules
+     */
+    private void clearCache( LessParser parser ) {
+        IdentityHashMap<Rule, Boolean> done = new IdentityHashMap<>();
+        clearCache( parser.getRules(), done );
+        for( Expression expr : parser.getVariables().values() ) {
+            clearCache( expr );
+        }
+        for( Entry<String, List<Rule>> entry : mixins.entrySet() ) {
+            clearCache( entry.getValue(), done );
+        }
+    }
+
+    /**
+     * Reset all evaluated values of the formattables.
+     *
+     * @param formattables
+     *            a list of formattables
+     * @param done
+     *            the already processed rules
+     */
+    private static void clearCache( List<? extends Formattable> formattables, IdentityHashMap<Rule, Boolean> done ) {
+        for( Formattable formattable : formattables ) {
+            if( formattable instanceof Rule ) {
+                Rule rule = (Rule)formattable;
+                if( done.put( rule, Boolean.TRUE ) != null ) {
+                    continue;
+                }
+                clearCache( rule.getParams() );
+                clearCache( rule.getGuard() );
+                for( Expression expr : rule.getVariables().values() ) {
+                    clearCache( expr );
+                }
+                clearCache( rule.getProperties(), done );
+            } else if( formattable instanceof Mixin ) {
+                Mixin mixin = (Mixin)formattable;
+                mixin.clearCache();
+                clearCache( mixin.getParamValues() );
+            } else if( formattable instanceof RuleProperty ) {
+                clearCache( ((RuleProperty)formattable).getValue() );
+            } else if( formattable instanceof Expression ) {
+                clearCache( (Expression)formattable );
+            }
+        }
+    }
+
+    /**
+     * Reset all evaluated values of the expressions.
+     *
+     * @param expressions
+     *            the expressions, can be null
+     */
+    private static void clearCache( List<Expression> expressions ) {
+        if( expressions != null ) {
+            for( Expression expr : expressions ) {
+                clearCache( expr );
+            }
+        }
+    }
+
+    /**
+     * Reset all evaluated values of the expression and its children.
+     *
+     * @param expr
+     *            the expression, can be null
+     */
+    private static void clearCache( Expression expr ) {
+        if( expr instanceof Operation ) {
+            Operation op = (Operation)expr;
+            op.clearCache();
+            clearCache( op.getOperands() );
+        } else if( expr instanceof FunctionExpression ) {
+            FunctionExpression function = (FunctionExpression)expr;
+            function.clearCache();
+            clearCache( function.getParameters() );
+        } else if( expr instanceof JavaScriptExpression ) {
+            ((JavaScriptExpression)expr).clearCache();
+        }
+    }
+}
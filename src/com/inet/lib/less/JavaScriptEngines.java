@@ -0,0 +1,132 @@
+/**
+ * MIT License (MIT)
+ *
+ * Copyright (c) 2017 Volker Berlin
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * UT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author Volker Berlin
+ * @license: The MIT license <http://opensource.org/licenses/MIT>
+ */
+package com.inet.lib.less;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import javax.annotation.Nullable;
+import javax.script.Compilable;
+import javax.script.CompiledScript;
+import javax.script.ScriptContext;
+import javax.script.ScriptEngine;
+import javax.script.ScriptEngineManager;
+import javax.script.ScriptException;
+
+/**
+ * A pool of JavaScript engines. A script engine is not thread safe, so every engine is used by only one thread at a
+ * time. Every engine holds the compiled scripts of its last evaluations.
+ */
+class JavaScriptEngines {
+
+    private static final ConcurrentLinkedQueue<JavaScriptEngines> POOL        = new ConcurrentLinkedQueue<>();
+
+    private static final int                                      MAX_SCRIPTS = 256;
+
+    private final ScriptEngine                                    engine;
+
+    private final CompiledScripts                                 scripts     = new CompiledScripts();
+
+    /**
+     * The compiled scripts of an engine. The least recently used script is removed if there are too many scripts.
+     */
+    private static class CompiledScripts extends LinkedHashMap<String, CompiledScript> {
+
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Create a new instance with access order.
+         */
+        CompiledScripts() {
+            super( 16, 0.75F, true );
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        protected boolean removeEldestEntry( Map.Entry<String, CompiledScript> eldest ) {
+            return size() > MAX_SCRIPTS;
+        }
+    }
+
+    /**
+     * Create a new instance.
+     * 
+     * @param engine the JavaScript engine
+     */
+    private JavaScriptEngines( ScriptEngine engine ) {
+        this.engine = engine;
+    }
+
+    /**
+     * Get an unused engine from the pool or create a new engine. It must be returned with {@link #release()}.
+     * 
+     * @return the engine or null if there is no JavaScript engine installed
+     */
+    @Nullable
+    static JavaScriptEngines acquire() {
+        JavaScriptEngines engines = POOL.poll();
+        if( engines == null ) {
+            ScriptEngineManager factory = new ScriptEngineManager( JavaScriptEngines.class.getClassLoader() );
+            ScriptEngine engine = factory.getEngineByName( "JavaScript" );
+            if( engine == null ) {
+                return null;
+            }
+            engines = new JavaScriptEngines( engine );
+        }
+        return engines;
+    }
+
+    /**
+     * Return the engine to the pool.
+     */
+    void release() {
+        POOL.offer( this );
+    }
+
+    /**
+     * Execute a script. The script is compiled on the first call if the engine supports it.
+     * 
+     * @param script the JavaScript without place holders
+     * @param context the context with the bindings of the current less variables
+     * @return the result of the script
+     * @throws ScriptException if the script fails
+     */
+    Object eval( String script, ScriptContext context ) throws ScriptException {
+        if( !(engine instanceof Compilable) ) {
+            return engine.eval( script, context );
+        }
+        CompiledScript compiled = scripts.get( script );
+        if( compiled == null ) {
+            compiled = ((Compilable)engine).compile( script );
+            scripts.put( script, compiled );
+        }
+        return compiled.eval( context );
+    }
+}
@@ -29,9 +29,6 @@
 import java.util.Collection;
 import java.util.Map;
 
-import javax.script.ScriptEngine;
-import javax.script.ScriptEngineManager;
-
 /**
  * An expression with JavaScript.
  */
@@ -50,6 +47,14 @@ public class JavaScriptExpression extends Expression {
         super( obj, str );
     }
 
+    /**
+     * Reset the evaluated result. Required if the script is formatted again with changed variables.
+     */
+    void clearCache() {
+        type = UNKNOWN;
+        result = null;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -124,15 +129,15 @@ private void eval( CssFormatter formatter ) {
         if( type != UNKNOWN ) {
             return;
         }
+        JavaScriptEngines engines = JavaScriptEngines.acquire();
+        if( engines == null ) {
+            throw createException( "No JavaScript engine is available for: " + toString() );
+        }
         try {
-            ScriptEngineManager factory = new ScriptEngineManager( getClass().getClassLoader() );
-            ScriptEngine engine = factory.getEngineByName( "JavaScript" );
-            engine.setContext( new JavaScriptContext( formatter, this ) );
-
             String script = toString();
             script = SelectorUtils.replacePlaceHolder( formatter, script, this );
             script = script.substring( 1, script.length() - 1 );
-            result = engine.eval( script );
+            result = engines.eval( script, new JavaScriptContext( formatter, this ) );
             if( result instanceof Number ) {
                 type = NUMBER;
             } else if( result instanceof Boolean ) {
@@ -147,6 +152,8 @@ private void eval( CssFormatter formatter ) {
             }
         } catch( Exception ex ) {
             throw createException( ex );
+        } finally {
+            engines.release();
         }
     }
 }
@@ -26,12 +26,23 @@
  */
 package com.inet.lib.less;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
 import java.io.StringReader;
+import java.io.Writer;
 import java.net.URL;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
+import java.util.Map;
 
 /**
  * The main class of JLessC library. Its contain all start points for converting LESS to CSS files.
@@ -71,14 +82,242 @@ public static String compile( URL baseURL, String lessData, boolean compress ) t
      *            if any error occur on compiling.
      */
     public static String compile( URL baseURL, String lessData, boolean compress, ReaderFactory readerFactory ) throws LessException {
+        return format( parse( baseURL, new StringReader( lessData ), readerFactory ), baseURL, compress );
+    }
+
+    /**
+     * Compile the less data from a string with the given options. If the output is a {@link Writer} and no source map is
+     * created then the CSS data are written rule by rule without holding the complete result in memory. The output is
+     * not flushed or closed.
+     * 
+     * @param baseURL
+     *            the baseURL for import of external less data.
+     * @param lessData
+     *            the input less data
+     * @param options
+     *            the options of the compile
+     * @param output
+     *            the target for the CSS data, for example a StringBuilder or a Writer
+     * @throws IOException
+     *             if an I/O error occurs on writing
+     * @throws LessException
+     *             if any error occur on compiling. Nothing was written in this case.
+     */
+    public static void compile( URL baseURL, String lessData, CompileOptions options, Appendable output ) throws IOException {
+        LessParser parser = parse( baseURL, new StringReader( lessData ), options );
+        format( parser, baseURL, options, output );
+    }
+
+    /**
+     * Compile the less data from a string with the given options and write the CSS data UTF-8 encoded to a stream. The
+     * CSS data are written rule by rule without holding the complete result in memory.
+     * 
+     * @param baseURL
+     *            the baseURL for import of external less data.
+     * @param lessData
+     *            the input less data
+     * @param options
+     *            the options of the compile
+     * @param output
+     *            the target for the CSS data. It is flushed but not closed.
+     * @throws IOException
+     *             if an I/O error occurs on writing
+     * @throws LessException
+     *             if any error occur on compiling. Nothing was written in this case.
+     */
+    public static void compile( URL baseURL, String lessData, CompileOptions options, OutputStream output ) throws IOException {
+        Writer writer = new OutputStreamWriter( output, StandardCharsets.UTF_8 );
+        compile( baseURL, lessData, options, writer );
+        writer.flush();
+    }
+
+    /**
+     * Compile the less data from a string with the given options and write the CSS data UTF-8 encoded to a channel. The
+     * CSS data are written rule by rule without holding the complete result in memory.
+     * 
+     * @param baseURL
+     *            the baseURL for import of external less data.
+     * @param lessData
+     *            the input less data
+     * @param options
+     *            the options of the compile
+     * @param output
+     *            a blocking channel as target for the CSS data. It is not closed.
+     * @throws IOException
+     *             if an I/O error occurs on writing
+     * @throws LessException
+     *             if any error occur on compiling. Nothing was written in this case.
+     */
+    public static void compile( URL baseURL, String lessData, CompileOptions options, WritableByteChannel output ) throws IOException {
+        Writer writer = Channels.newWriter( output, StandardCharsets.UTF_8.newEncoder(), -1 );
+        compile( baseURL, lessData, options, writer );
+        writer.flush();
+    }
+
+    /**
+     * Compile the less data from a string into a separate style sheet for every media query. The rules without a media
+     * query and the @import and @charset rules are returned with the empty string as key. All other keys are the media
+     * queries like "print" or "(min-width: 768px)" and can be used for the media attribute of a link element. Such
+     * style sheets do not block the rendering of the page if the media query does not match. The media blocks keep
+     * their @media rule.
+     * 
+     * @param baseURL
+     *            the baseURL for import of external less data.
+     * @param lessData
+     *            the input less data
+     * @param options
+     *            the options of the compile, a source map is not created
+     * @return the CSS data for every media query in the order of the first occurrence, the first entry is the base
+     *         style sheet
+     * @throws LessException
+     *             if any error occur on compiling.
+     */
+    public static Map<String, String> compileByMedia( URL baseURL, String lessData, CompileOptions options ) throws LessException {
+        LessParser parser = parse( baseURL, new StringReader( lessData ), options );
+        return formatByMedia( parser, baseURL, options );
+    }
+
+    /**
+     * Format the parsed less data into a separate style sheet for every media query.
+     * 
+     * @param parser
+     *            a parser with parsed or loaded rules
+     * @param baseURL
+     *            the baseURL for import of external less data.
+     * @param options
+     *            the options of the compile
+     * @return the CSS data for every media query
+     * @throws LessException
+     *             if any error occur on formatting.
+     */
+    private static Map<String, String> formatByMedia( LessParser parser, URL baseURL, CompileOptions options ) throws LessException {
+        try {
+            CssFormatter formatter = options.isCompress() ? new CompressCssFormatter( options.isOptimize() ) : new CssFormatter();
+            parser.parseLazy( formatter );
+            return formatter.formatByMedia( parser, baseURL );
+        } catch( LessException ex ) {
+            throw ex;
+        } catch( Exception ex ) {
+            throw new LessException( ex );
+        }
+    }
+
+    /**
+     * Parse the less data.
+     * 
+     * @param baseURL
+     *            the baseURL for import of external less data.
+     * @param lessData
+     *            the input less data
+     * @param readerFactory
+     *            A factory for the readers for imports.
+     * @return the parser with the parsed rules
+     * @throws LessException 
+     *            if any error occur on parsing.
+     */
+    private static LessParser parse( URL baseURL, Reader lessData, ReaderFactory readerFactory ) throws LessException {
         try {
             LessParser parser = new LessParser();
-            parser.parse( baseURL, new StringReader( lessData ), readerFactory );
-            
+            parser.parse( baseURL, lessData, readerFactory );
+            return parser;
+        } catch( LessException ex ) {
+            throw ex;
+        } catch( Exception ex ) {
+            throw new LessException( ex );
+        }
+    }
+
+    /**
+     * Parse the less data with the import cache of the options if set. Less data without a URL are parsed without the
+     * cache.
+     * 
+     * @param baseURL
+     *            the baseURL for import of external less data.
+     * @param lessData
+     *            the input less data
+     * @param options
+     *            the options with the reader factory and the import cache
+     * @return the parser with the parsed rules
+     * @throws LessException 
+     *            if any error occur on parsing.
+     */
+    private static LessParser parse( URL baseURL, Reader lessData, CompileOptions options ) throws LessException {
+        ImportCache importCache = options.getImportCache();
+        if( importCache == null || baseURL == null ) {
+            return parse( baseURL, lessData, options.getReaderFactory() );
+        }
+        try {
+            return importCache.parse( baseURL, lessData, options.getReaderFactory() );
+        } catch( LessException ex ) {
+            throw ex;
+        } catch( Exception ex ) {
+            throw new LessException( ex );
+        }
+    }
+
+    /**
+     * Load the precompiled data of a less file if valid, else parse the less file.
+     * 
+     * @param lessFile
+     *            the less file
+     * @param baseURL
+     *            the URL of the less file
+     * @param options
+     *            the options with the precompiled file, the reader factory and the import cache
+     * @return the parser with the parsed rules
+     * @throws IOException
+     *             if an I/O error occurs reading from the less file
+     */
+    private static LessParser load( File lessFile, URL baseURL, CompileOptions options ) throws IOException {
+        ReaderFactory readerFactory = options.getReaderFactory();
+        File precompiledFile = options.getPrecompiledFile();
+        if( precompiledFile != null && precompiledFile.isFile() ) {
+            try( InputStream input = new BufferedInputStream( new FileInputStream( precompiledFile ) ) ) {
+                LessParser parser = PrecompiledLess.read( input, baseURL, readerFactory );
+                if( parser != null ) {
+                    return parser;
+                }
+            }
+        }
+        try( Reader lessData = new MappedFileReader( lessFile ) ) {
+            return parse( baseURL, lessData, options );
+        }
+    }
+
+    /**
+     * Format the parsed less data to CSS.
+     * 
+     * @param parser
+     *            a parser with parsed or loaded rules
+     * @param baseURL
+     *            the baseURL for import of external less data.
+     * @param compress
+     *            true, if the CSS data should be compressed without any extra formating characters.
+     * @return the resulting CSS data
+     * @throws LessException 
+     *            if any error occur on formatting.
+     */
+    static String format( LessParser parser, URL baseURL, boolean compress ) throws LessException {
+        return format( parser, baseURL, new CompileOptions().setCompress( compress ) );
+    }
+
+    /**
+     * Format the parsed less data to CSS.
+     * 
+     * @param parser
+     *            a parser with parsed or loaded rules
+     * @param baseURL
+     *            the baseURL for import of external less data.
+     * @param options
+     *            the options of the compile
+     * @return the resulting CSS data
+     * @throws LessException 
+     *            if any error occur on formatting.
+     */
+    private static String format( LessParser parser, URL baseURL, CompileOptions options ) throws LessException {
+        try {
             StringBuilder builder = new StringBuilder();
-            CssFormatter formatter = compress ? new CompressCssFormatter() :  new CssFormatter();
-            parser.parseLazy( formatter );
-            formatter.format( parser, baseURL, builder );
+            createFormatter( parser, baseURL, options ).format( parser, baseURL, builder );
             return builder.toString();
         } catch( LessException ex ) {
             throw ex;
@@ -87,6 +326,58 @@ public static String compile( URL baseURL, String lessData, boolean compress, Re
         }
     }
 
+    /**
+     * Format the parsed less data to CSS and append it to the output. A Writer receives the CSS data rule by rule if no
+     * source map is created.
+     * 
+     * @param parser
+     *            a parser with parsed or loaded rules
+     * @param baseURL
+     *            the baseURL for import of external less data.
+     * @param options
+     *            the options of the compile
+     * @param output
+     *            the target for the CSS data
+     * @throws IOException
+     *             if an I/O error occurs on writing
+     * @throws LessException 
+     *            if any error occur on formatting.
+     */
+    private static void format( LessParser parser, URL baseURL, CompileOptions options, Appendable output ) throws IOException {
+        if( !(output instanceof Writer) || options.getSourceMap() != null ) {
+            output.append( format( parser, baseURL, options ) );
+            return;
+        }
+        try {
+            createFormatter( parser, baseURL, options ).format( parser, baseURL, (Writer)output );
+        } catch( LessException | IOException ex ) {
+            throw ex;
+        } catch( Exception ex ) {
+            throw new LessException( ex );
+        }
+    }
+
+    /**
+     * Create a formatter for the options and parse the lazy imports with it.
+     * 
+     * @param parser
+     *            a parser with parsed or loaded rules
+     * @param baseURL
+     *            the baseURL for import of external less data.
+     * @param options
+     *            the options of the compile
+     * @return the formatter
+     */
+    private static CssFormatter createFormatter( LessParser parser, URL baseURL, CompileOptions options ) {
+        CssFormatter formatter = options.isCompress() ? new CompressCssFormatter( options.isOptimize() ) : new CssFormatter();
+        SourceMap sourceMap = options.getSourceMap();
+        if( sourceMap != null ) {
+            formatter.setSourceMap( sourceMap, baseURL, parser.getSourceNames() );
+        }
+        parser.parseLazy( formatter );
+        return formatter;
+    }
+
     /**
      * Compile the less data from a file.
      * 
@@ -99,8 +390,7 @@ public static String compile( URL baseURL, String lessData, boolean compress, Re
      *             if an I/O error occurs reading from the less file
      */
     public static String compile( File lessFile, boolean compress ) throws IOException {
-        String lessData = new String( Files.readAllBytes( lessFile.toPath() ), StandardCharsets.UTF_8 );
-        return Less.compile( lessFile.toURI().toURL(), lessData, compress, new ReaderFactory() );
+        return compile( lessFile, compress, new ReaderFactory() );
     }
 
     /**
@@ -117,7 +407,114 @@ public static String compile( File lessFile, boolean compress ) throws IOExcepti
      *             if an I/O error occurs reading from the less file
      */
     public static String compile( File lessFile, boolean compress, ReaderFactory readerFactory ) throws IOException {
-        String lessData = new String( Files.readAllBytes( lessFile.toPath() ), StandardCharsets.UTF_8 );
-        return Less.compile( lessFile.toURI().toURL(), lessData, compress, readerFactory );
+        URL baseURL = lessFile.toURI().toURL();
+        try( Reader lessData = new MappedFileReader( lessFile ) ) {
+            return format( parse( baseURL, lessData, readerFactory ), baseURL, compress );
+        }
+    }
+
+    /**
+     * Compile the less data from a file with the given options. If the output is a {@link Writer} and no source map is
+     * created then the CSS data are written rule by rule without holding the complete result in memory. The output is
+     * not flushed or closed.
+     * 
+     * @param lessFile
+     *            the less file
+     * @param options
+     *            the options of the compile
+     * @param output
+     *            the target for the CSS data, for example a StringBuilder or a Writer
+     * @throws IOException
+     *             if an I/O error occurs reading from the less file or on writing
+     * @throws LessException
+     *             if any error occur on compiling. Nothing was written in this case.
+     */
+    public static void compile( File lessFile, CompileOptions options, Appendable output ) throws IOException {
+        URL baseURL = lessFile.toURI().toURL();
+        format( load( lessFile, baseURL, options ), baseURL, options, output );
+    }
+
+    /**
+     * Compile the less data from a file with the given options and write the CSS data UTF-8 encoded to a stream. The
+     * CSS data are written rule by rule without holding the complete result in memory.
+     * 
+     * @param lessFile
+     *            the less file
+     * @param options
+     *            the options of the compile
+     * @param output
+     *            the target for the CSS data. It is flushed but not closed.
+     * @throws IOException
+     *             if an I/O error occurs reading from the less file or on writing
+     * @throws LessException
+     *             if any error occur on compiling. Nothing was written in this case.
+     */
+    public static void compile( File lessFile, CompileOptions options, OutputStream output ) throws IOException {
+        Writer writer = new OutputStreamWriter( output, StandardCharsets.UTF_8 );
+        compile( lessFile, options, writer );
+        writer.flush();
+    }
+
+    /**
+     * Compile the less data from a file with the given options and write the CSS data UTF-8 encoded to a channel. The
+     * CSS data are written rule by rule without holding the complete result in memory.
+     * 
+     * @param lessFile
+     *            the less file
+     * @param options
+     *            the options of the compile
+     * @param output
+     *            a blocking channel as target for the CSS data. It is not closed.
+     * @throws IOException
+     *             if an I/O error occurs reading from the less file or on writing
+     * @throws LessException
+     *             if any error occur on compiling. Nothing was written in this case.
+     */
+    public static void compile( File lessFile, CompileOptions options, WritableByteChannel output ) throws IOException {
+        Writer writer = Channels.newWriter( output, StandardCharsets.UTF_8.newEncoder(), -1 );
+        compile( lessFile, options, writer );
+        writer.flush();
+    }
+
+    /**
+     * Compile the less data from a file into a separate style sheet for every media query.
+     * 
+     * @param lessFile
+     *            the less file
+     * @param options
+     *            the options of the compile, a source map is not created
+     * @return the CSS data for every media query in the order of the first occurrence, the first entry with the empty
+     *         string as key is the base style sheet
+     * @throws IOException
+     *             if an I/O error occurs reading from the less file
+     * @see #compileByMedia(URL, String, CompileOptions)
+     */
+    public static Map<String, String> compileByMedia( File lessFile, CompileOptions options ) throws IOException {
+        URL baseURL = lessFile.toURI().toURL();
+        return formatByMedia( load( lessFile, baseURL, options ), baseURL, options );
+    }
+
+    /**
+     * Parse a less file and save the result in a binary format. A later compile with
+     * {@link CompileOptions#setPrecompiledFile(File)} can use it and must only format the CSS data.
+     * 
+     * @param lessFile
+     *            the less file
+     * @param precompiledFile
+     *            the target file for the precompiled data, typical with the extension ".lessc"
+     * @param readerFactory
+     *            A factory for the readers for imports.
+     * @throws IOException
+     *             if an I/O error occurs reading the less file or writing the precompiled file
+     */
+    public static void precompile( File lessFile, File precompiledFile, ReaderFactory readerFactory ) throws IOException {
+        URL baseURL = lessFile.toURI().toURL();
+        LessParser parser;
+        try( Reader lessData = new MappedFileReader( lessFile ) ) {
+            parser = parse( baseURL, lessData, readerFactory );
+        }
+        try( OutputStream output = new BufferedOutputStream( new FileOutputStream( precompiledFile ) ) ) {
+            PrecompiledLess.write( parser, baseURL, output );
+        }
     }
 }
@@ -109,7 +109,7 @@ static String addLessExtendsTo( FormattableContainer container, LessObject obj,
      * @param all
      *            If keyword "all" was set
      */
-    private LessExtend( LessObject obj, String[] baseSelector, String extendingSelector, boolean all ) {
+    LessExtend( LessObject obj, String[] baseSelector, String extendingSelector, boolean all ) {
         super( obj );
 
         this.selector = baseSelector[0];
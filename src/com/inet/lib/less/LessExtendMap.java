@@ -30,6 +30,7 @@
 import java.util.Arrays;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map.Entry;
 
 /**
  * Hold all extends that was executed.
@@ -40,6 +41,14 @@ class LessExtendMap {
 
     private final HashMultimap<String, String[]>         exact;
 
+    private final LessExtendMap                          parent;
+
+    private int                                          modCount;
+
+    private SubstringMatcher                             allMatcher;
+
+    private int                                          allMatcherVersion;
+
     // use a LinkedHashSet as cache to remove duplicates and hold the original order
     private final LinkedHashSet<String>                  selectorList = new LinkedHashSet<>();
 
@@ -58,6 +67,7 @@ public SelectorTokenizer pollLast() {
     LessExtendMap() {
         all = new HashMultimap<>();
         exact = new HashMultimap<>();
+        parent = null;
     }
 
     /**
@@ -69,6 +79,7 @@ public SelectorTokenizer pollLast() {
     LessExtendMap( LessExtendMap parent ) {
         all = new HashMultimap<>( parent.all );
         exact = new HashMultimap<>( parent.exact );
+        this.parent = parent;
     }
 
     /**
@@ -83,6 +94,7 @@ void add( LessExtend lessExtend, String[] mainSelector ) {
             mainSelector = SelectorUtils.merge( mainSelector, lessExtend.getSelectors() );
         }
         String extendingSelector = lessExtend.getExtendingSelector();
+        modCount++;
         if( lessExtend.isAll() ) {
             LessExtendResult extend = new LessExtendResult( mainSelector, extendingSelector );
             SelectorTokenizer tokenizer = tokenizers.pollLast().init( extendingSelector );
@@ -109,6 +121,7 @@ void add( LessExtend lessExtend, String[] mainSelector ) {
      * @return the selectors concatenate with extends or the original if there are no etends.
      */
     String[] concatenateExtends( String[] selectors, boolean isReference ) {
+        getAllMatcher();
         selectorList.clear();
         for( String selector : selectors ) {
             concatenateExtendsRecursive( selector, isReference, selector );
@@ -133,6 +146,52 @@ String[] concatenateExtends( String[] selectors, boolean isReference ) {
         return selectors;
     }
 
+    /**
+     * Get a version of this map and its parents which changes on every modification.
+     * 
+     * @return the version
+     */
+    private int version() {
+        return parent == null ? modCount : modCount + parent.version();
+    }
+
+    /**
+     * Get a matcher for the extending selectors of all "all" extends of this map and its parents. A map without own
+     * "all" extends, for example of a media block, use the matcher of its parent.
+     * 
+     * @return the matcher
+     */
+    private SubstringMatcher getAllMatcher() {
+        int version = version();
+        if( allMatcher == null || allMatcherVersion != version ) {
+            if( parent != null && all.entrySet().isEmpty() ) {
+                allMatcher = parent.getAllMatcher();
+            } else {
+                allMatcher = new SubstringMatcher();
+                addExtendingSelectors( allMatcher );
+            }
+            allMatcherVersion = version;
+        }
+        return allMatcher;
+    }
+
+    /**
+     * Add the extending selectors of all "all" extends of this map and its parents.
+     * 
+     * @param matcher
+     *            the target
+     */
+    private void addExtendingSelectors( SubstringMatcher matcher ) {
+        for( Entry<String, List<LessExtendResult>> entry : all.entrySet() ) {
+            for( LessExtendResult lessExtend : entry.getValue() ) {
+                matcher.add( lessExtend.getExtendingSelector() );
+            }
+        }
+        if( parent != null ) {
+            parent.addExtendingSelectors( matcher );
+        }
+    }
+
     /**
      * Add to the given selector all possible extends to the internal selectorList. This method is call recursive.
      * 
@@ -156,6 +215,9 @@ private void concatenateExtendsRecursive( String selector, boolean isReference,
                 }
             }
         }
+        if( !allMatcher.containsAny( selector ) ) {
+            return; // every "all" extend requires that the selector contains the extending selector
+        }
         SelectorTokenizer tokenizer = tokenizers.pollLast().init( allSelector );
         do {
             String token = tokenizer.next();
@@ -168,7 +230,7 @@ private void concatenateExtendsRecursive( String selector, boolean isReference,
                     String extendingSelector = lessExtend.getExtendingSelector();
                     if( selector.contains( extendingSelector ) ) {
                         for( String replace : lessExtend.getSelectors() ) {
-                            String replacedSelector = selector.replace( extendingSelector, replace );
+                            String replacedSelector = SelectorUtils.fastReplace( selector, extendingSelector, replace );
                             boolean needRecursion = selectorList.add( replacedSelector );
                             if( needRecursion && !replacedSelector.contains( extendingSelector ) ) {
                                 concatenateExtendsRecursive( replacedSelector, isReference, replace );
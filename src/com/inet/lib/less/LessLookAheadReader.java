@@ -26,22 +26,41 @@
  */
 package com.inet.lib.less;
 
-import java.io.BufferedReader;
 import java.io.Closeable;
 import java.io.IOException;
 import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
- * A reader with some special look ahead reading.
+ * A reader with some special look ahead reading. The complete input is loaded into a char array. The look ahead cache
+ * is a range of this array. Line comments are removed by moving the following data inside of the array.
  */
 class LessLookAheadReader extends LessObject implements Closeable {
 
     private final Reader        reader;
 
-    private final StringBuilder cache = new StringBuilder();
+    private char[]              data;
+
+    private int                 dataLength;
 
     private final boolean       isReference, isMultiple;
 
+    /**
+     * The start of the look ahead cache in data.
+     */
+    private int                 cacheStart;
+
+    /**
+     * The end of the look ahead cache in data.
+     */
+    private int                 cacheEnd;
+
+    /**
+     * The next not scanned position in data. Can be larger as cacheEnd if line comments was removed.
+     */
+    private int                 nextPos;
+
     private int                 cachePos;
 
     /**
@@ -50,47 +69,77 @@ class LessLookAheadReader extends LessObject implements Closeable {
      * @param fileName the filename of the less file or null if a String is parsed.
      * @param isReference true, if the less file is imported as reference
      * @param isMultiple true, if the less file is imported with keyword "multiple"
+     * @throws IOException if an I/O error occur on reading the data
      */
-    LessLookAheadReader( Reader reader, String fileName, boolean isReference, boolean isMultiple ) {
+    LessLookAheadReader( Reader reader, String fileName, boolean isReference, boolean isMultiple ) throws IOException {
         super( fileName );
-        this.reader = reader.markSupported() ? reader : new BufferedReader( reader );
+        this.reader = reader;
         this.isReference = isReference;
         this.isMultiple = isMultiple;
         line = 1;
         column = 0;
+        if( reader instanceof MappedFileReader ) {
+            // use the decoded data of the file without a copy
+            data = ((MappedFileReader)reader).getBuffer();
+            dataLength = ((MappedFileReader)reader).getLength();
+            return;
+        }
+        char[] buffer = new char[8192];
+        int length = 0;
+        for( ;; ) {
+            int count = reader.read( buffer, length, buffer.length - length );
+            if( count < 0 ) {
+                break;
+            }
+            length += count;
+            if( length == buffer.length ) {
+                char[] newBuffer = new char[buffer.length * 2];
+                System.arraycopy( buffer, 0, newBuffer, 0, length );
+                buffer = newBuffer;
+            }
+        }
+        data = buffer;
+        dataLength = length;
     }
 
     /**
-     * Get the next parse type. This can be -1, ';', '{' or '}'. It copy the input until this marker in the look ahead
+     * Get the next parse type. This can be -1, ';', '{' or '}'. It scan the input until this marker and this range is the look ahead
      * cache.
      * 
      * @return the block type of the next data.
      * @throws LessException if any parsing error occur.
      */
     int nextBlockMarker() throws LessException {
-        cache.setLength( cachePos = 0 );
+        final char[] data = this.data;
+        final int dataLength = this.dataLength;
+        int nextPos = this.nextPos;
+        int cacheEnd = cacheStart = cachePos = nextPos;
         int parenthesis = 0;
         boolean isSlash = false;
         try {
             for( ;; ) {
-                int ch = reader.read();
-                if( ch < 0 ) {
-                    for( int i = 0; i < cache.length(); i++ ) {
-                        if( !Character.isWhitespace( cache.charAt( i ) ) ) {
+                if( nextPos >= dataLength ) {
+                    for( int i = cacheStart; i < cacheEnd; i++ ) {
+                        if( !Character.isWhitespace( data[i] ) ) {
                             return ';'; // a not terminated line is like a lime with semicolon
                         }
                     }
                     return -1;
                 }
-                cache.append( (char)ch );
+                char ch = data[cacheEnd++] = data[nextPos++];
                 switch( ch ) {
                     case '/':
                         if( isSlash ) {
-                            if( parenthesis > 0 && cache.indexOf( "url" ) > 0 ) {
+                            if( parenthesis > 0 && cacheIndexOf( "url", cacheEnd ) > 0 ) {
                                 break; // url function with unquoted url like url(http://xyz)
                             }
-                            cache.setLength( cache.length() - 2 );
-                            skipLine();
+                            cacheEnd -= 2;
+                            // skip all data until a newline occur or an EOF
+                            int ch2;
+                            do {
+                                ch2 = nextPos < dataLength ? data[nextPos++] : -1;
+                                incLineColumn( ch2 );
+                            } while( ch2 != '\n' && ch2 != -1 );
                             ch = 0;
                         }
                         break;
@@ -98,11 +147,11 @@ int nextBlockMarker() throws LessException {
                         if( isSlash ) {
                             boolean isAsterix = false;
                             for( ;; ) {
-                                ch = reader.read();
-                                if( ch < 0 ) {
-                                    throw createException( "Unrecognized input: '" + cache.toString().trim() + "'" );
+                                if( nextPos >= dataLength ) {
+                                    this.cacheEnd = cacheEnd;
+                                    throw createException( "Unrecognized input: '" + getLookAhead().trim() + "'" );
                                 }
-                                cache.append( (char)ch );
+                                ch = data[cacheEnd++] = data[nextPos++];
                                 if( ch == '/' && isAsterix ) {
                                     ch = 0;
                                     break;
@@ -112,13 +161,13 @@ int nextBlockMarker() throws LessException {
                         }
                         break;
                     case '{':
-                        if( cache.length() > 1 && cache.charAt( cache.length() - 2 ) == '@' ) { // @{  --> a inline variable and not a block start
+                        if( cacheEnd - cacheStart > 1 && data[cacheEnd - 2] == '@' ) { // @{  --> a inline variable and not a block start
                             do {
-                                ch = reader.read();
-                                if( ch < 0 ) {
-                                    throw createException( "Unrecognized input: '" + cache.toString().trim() + "'" );
+                                if( nextPos >= dataLength ) {
+                                    this.cacheEnd = cacheEnd;
+                                    throw createException( "Unrecognized input: '" + getLookAhead().trim() + "'" );
                                 }
-                                cache.append( (char)ch );
+                                ch = data[cacheEnd++] = data[nextPos++];
                             } while( ch != '}' );
                             break;
                         }
@@ -134,20 +183,20 @@ int nextBlockMarker() throws LessException {
                         break;
                     case ')':
                         if( --parenthesis < 0 ) {
-                            throw createException( "Unrecognized input: '" + cache.toString().trim() + "'" );
+                            this.cacheEnd = cacheEnd;
+                            throw createException( "Unrecognized input: '" + getLookAhead().trim() + "'" );
                         }
                         break;
                     case '"':
                     case '\'':
                     case '`':
-                        int ch2;
+                        char ch2;
                         isSlash = false;
                         for( ;; ) {
-                            ch2 = reader.read();
-                            if( ch2 < 0 ) {
+                            if( nextPos >= dataLength ) {
                                 return ';'; // a not terminated line is like a lime with semicolon
                             }
-                            cache.append( (char)ch2 );
+                            ch2 = data[cacheEnd++] = data[nextPos++];
                             if( ch == ch2 && !isSlash ) {
                                 break;
                             }
@@ -155,25 +204,128 @@ int nextBlockMarker() throws LessException {
                         }
                         break;
                     case '\\':
-                        cache.append( (char)reader.read() );
+                        if( nextPos < dataLength ) {
+                            data[cacheEnd++] = data[nextPos++];
+                        }
                         break;
                     default:
                 }
                 isSlash = ch == '/';
             }
-        } catch( IOException ex ) {
-            throw new LessException( ex );
+        } finally {
+            this.nextPos = nextPos;
+            this.cacheEnd = cacheEnd;
         }
     }
 
+    /**
+     * Search a string in the look ahead cache.
+     * 
+     * @param str the searched string
+     * @param cacheEnd the current end of the cache
+     * @return the index relative to the cache start or -1 if not found
+     */
+    private int cacheIndexOf( String str, int cacheEnd ) {
+        char first = str.charAt( 0 );
+        int max = cacheEnd - str.length();
+        LOOP: for( int i = cacheStart; i <= max; i++ ) {
+            if( data[i] == first ) {
+                for( int k = 1; k < str.length(); k++ ) {
+                    if( data[i + k] != str.charAt( k ) ) {
+                        continue LOOP;
+                    }
+                }
+                return i - cacheStart;
+            }
+        }
+        return -1;
+    }
+
     /**
      * The read data from nextBlockMarker(). Is used for an error message only.
      * @return the look ahead cache.
      */
     String getLookAhead(){
-        return cache.toString();
+        return new String( data, cacheStart, cacheEnd - cacheStart );
+    }
+
+
+    /**
+     * Search all <code>@import</code> directives in the not parsed data that are not inside a comment. This is a fast
+     * scan without any evaluation. The result can contains also imports that are never executed.
+     * 
+     * @return the directive content between the keyword and the semicolon, never null
+     */
+    List<String> scanImports() {
+        List<String> result = new ArrayList<>();
+        final char[] data = this.data;
+        final int dataLength = this.dataLength;
+        for( int i = nextPos; i < dataLength; i++ ) {
+            char ch = data[i];
+            switch( ch ) {
+                case '/':
+                    if( i + 1 < dataLength ) {
+                        if( data[i + 1] == '/' ) {
+                            while( i < dataLength && data[i] != '\n' ) {
+                                i++;
+                            }
+                        } else if( data[i + 1] == '*' ) {
+                            for( i += 2; i + 1 < dataLength && (data[i] != '*' || data[i + 1] != '/'); i++ ) {
+                                // skip the comment
+                            }
+                            i++;
+                        }
+                    }
+                    break;
+                case '"':
+                case '\'':
+                    i = skipQuote( ch, i + 1 );
+                    break;
+                case '@':
+                    if( i + 7 < dataLength && data[i + 1] == 'i' && data[i + 2] == 'm' && data[i + 3] == 'p' && data[i + 4] == 'o' && data[i + 5] == 'r' && data[i + 6] == 't' ) {
+                        char next = data[i + 7];
+                        if( Character.isLetterOrDigit( next ) || next == '-' || next == '_' ) {
+                            break; // a variable name
+                        }
+                        int start = i + 7;
+                        for( i = start; i < dataLength; i++ ) {
+                            ch = data[i];
+                            if( ch == '"' || ch == '\'' ) {
+                                i = skipQuote( ch, i + 1 );
+                            } else if( ch == ';' ) {
+                                result.add( new String( data, start, i - start ) );
+                                break;
+                            } else if( ch == '{' || ch == '}' ) {
+                                break;
+                            }
+                        }
+                    }
+                    break;
+                default:
+            }
+        }
+        return result;
     }
 
+    /**
+     * Skip a quoted string in the data.
+     * 
+     * @param quote the quote character
+     * @param i the position after the starting quote
+     * @return the position of the ending quote
+     */
+    private int skipQuote( char quote, int i ) {
+        for( ; i < dataLength; i++ ) {
+            char ch = data[i];
+            if( ch == quote ) {
+                break;
+            }
+            if( ch == '\\' ) {
+                i++;
+            }
+        }
+        return i;
+    }
 
     /**
      * If the next data which are already in the cache are a mixin parameter or part of a selector name.
@@ -198,13 +350,13 @@ String getLookAhead(){
      */
     boolean nextIsMixinParam( boolean isBlock ) {
         boolean isFirst = true;
-        for( int i=cachePos; i < cache.length(); i++ ) {
-            char ch = cache.charAt( i );
+        for( int i=cachePos; i < cacheEnd; i++ ) {
+            char ch = data[i];
             switch( ch ) {
                 case ')':
                     return true;
                 case '@':
-                    return cache.charAt( i+1 ) != '{';
+                    return i + 1 >= cacheEnd || data[i + 1] != '{';
                 case '~':
                     return true;
                 case '"':
@@ -213,11 +365,11 @@ boolean nextIsMixinParam( boolean isBlock ) {
                     if( !isFirst ) {
                         continue;
                     } else {
-                        if( Character.isDigit( cache.charAt( i + 1 ) ) ) { //Number with a starting point
+                        if( i + 1 < cacheEnd && Character.isDigit( data[i + 1] ) ) { //Number with a starting point
                             return true;
                         }
                     }
-                    if( i + 2 < cache.length() && cache.charAt( i + 1 ) == '.' && cache.charAt( i + 2 ) == '.' ) { // ...
+                    if( i + 2 < cacheEnd && data[i + 1] == '.' && data[i + 2] == '.' ) { // ...
                         return true;
                     }
                     return false;
@@ -234,25 +386,23 @@ boolean nextIsMixinParam( boolean isBlock ) {
     }
 
     /**
-     * Read a single character from reader or from back buffer
+     * Read a single character from the look ahead cache or from the following data
      * 
-     * @return a character or -1 if EOF
+     * @return a character
      * @throws LessException
-     *             If an I/O error occurs
+     *             If the end of data is reached
      */
     char read() {
-        try {
-            if( cachePos < cache.length() ) {
-                return incLineColumn( cache.charAt( cachePos++ ) );
-            }
-            int ch = reader.read();
-            if( ch == -1 ) {
-                throw createException( "Unexpected end of Less data" );
-            }
-            return incLineColumn( ch );
-        } catch( IOException ex ) {
-            throw new LessException( ex );
+        if( cachePos < cacheEnd ) {
+            return incLineColumn( data[cachePos++] );
+        }
+        if( nextPos >= dataLength ) {
+            throw createException( "Unexpected end of Less data" );
         }
+        // extends the cache that back() work also after the end of the cache
+        char ch = data[cacheEnd++] = data[nextPos++];
+        cachePos++;
+        return incLineColumn( ch );
     }
 
     /**
@@ -262,28 +412,10 @@ char read() {
      *            the char
      */
     void back( char ch ) {
-        cachePos--;
-        cache.setCharAt( cachePos, ch );
+        data[--cachePos] = ch;
         column--; // reverse of incLineColumn()
     }
 
-    /**
-     * Skip all data until a newline occur or an EOF
-     * 
-     * @throws LessException if an IO error occur
-     */
-    void skipLine() {
-        int ch;
-        do {
-            try {
-                ch = reader.read();
-            } catch( IOException ex ) {
-                throw new LessException( ex );
-            }
-            incLineColumn( ch );
-        } while( ch != '\n' && ch != -1 );
-    }
-
     /**
      * Increment the line and column count depending on the character.
      * @param ch current character
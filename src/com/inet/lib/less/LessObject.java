@@ -38,7 +38,7 @@ class LessObject {
     int    line, column;
 
     /**
-     * Only used from LessLookAheadReader
+     * Used from LessLookAheadReader and for loading of a precompiled parse tree.
      * @param filename the name of the less file, can be null if a string is parsed.
      */
     LessObject( String filename ) {
@@ -28,6 +28,7 @@
 
 import java.io.IOException;
 import java.io.Reader;
+import java.io.StringReader;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.ArrayDeque;
@@ -36,7 +37,7 @@
 import java.util.HashSet;
 import java.util.List;
 import java.util.Scanner;
-import java.util.StringTokenizer;
+import java.util.concurrent.Future;
 
 import javax.annotation.Nonnull;
 
@@ -65,6 +66,8 @@ class LessParser implements FormattableContainer {
 
     private HashMultimap<String, Rule>  mixins        = new HashMultimap<>();
 
+    private HashMap<String, String>     sourceNames   = new HashMap<>();
+
     /**
      * A StringBuilder which can reused inside one method. Do not call another method that also use it.
      */
@@ -76,6 +79,37 @@ class LessParser implements FormattableContainer {
 
     private List<LazyImport>            lazyImports;
 
+    /**
+     * The running reads of imports if the ReaderFactory is a PrefetchReaderFactory, else null. The key is the external
+     * form of the URL.
+     */
+    private HashMap<String, Future<String>> prefetches;
+
+    /**
+     * The segment of the file that is currently parsed if the parser is used from an IncrementalCompiler or with an
+     * ImportCache, else null.
+     */
+    private ImportSegment               segment;
+
+    /**
+     * The segments of the previous compile of an IncrementalCompiler. The key is {@link ImportSegment.Import#key}.
+     */
+    private HashMap<String, ImportSegment> segments;
+
+    /**
+     * The cache with the serialized segments of previous compiles or null.
+     */
+    private ImportCache                 importCache;
+
+    /**
+     * The parsed or replayed segments of the current compile.
+     */
+    private HashMap<String, ImportSegment> usedSegments;
+
+    private boolean                     replayFailed;
+
+    private final ConstantFolding       folding       = new ConstantFolding();
+
     /**
      * Get the parsed rules
      * 
@@ -110,10 +144,265 @@ void parse( URL baseURL, Reader input, ReaderFactory readerFactory  ) throws Mal
         this.baseURL = baseURL;
         this.readerFactory = readerFactory;
         this.relativeURL = new URL( "file", null, "" );
-        this.reader = new LessLookAheadReader( input, null, false, false );
+        try {
+            this.reader = new LessLookAheadReader( input, null, false, false );
+        } catch( IOException ex ) {
+            throw new LessException( ex );
+        }
+        if( readerFactory instanceof PrefetchReaderFactory ) {
+            prefetches = new HashMap<>();
+            prefetchImports();
+        }
         parse( this );
     }
 
+    /**
+     * Main method for parsing of main less data with an import cache. Files which are imported on the root level are
+     * loaded from the cache if they are not modified.
+     * 
+     * @param baseURL
+     *            the baseURL for import of external less data.
+     * @param input
+     *            the less input data
+     * @param readerFactory
+     *            A factory for the readers for imports.
+     * @param importCache
+     *            the cache with the segments of previous compiles or null to parse all files
+     * @param usedSegments
+     *            receive the segments of this compile
+     * @return false, if some imports has changed and a replay of segments was not possible. Then the result of the
+     *         parser is invalid and the less data must be parsed without the cache.
+     * @throws MalformedURLException
+     *             Should never occur
+     * @throws LessException
+     *             if any parsing error occurred
+     */
+    boolean parse( URL baseURL, Reader input, ReaderFactory readerFactory, ImportCache importCache, HashMap<String, ImportSegment> usedSegments ) throws MalformedURLException, LessException {
+        this.importCache = importCache;
+        this.usedSegments = usedSegments;
+        // records the root level of the less data that root imports are loaded as segments, it is never cached
+        this.segment = new ImportSegment( new ImportSegment.Import( baseURL, null, new URL( "file", null, "" ), false, false, false, false ) );
+        try {
+            parse( baseURL, input, readerFactory );
+        } finally {
+            segment = null;
+        }
+        return !replayFailed;
+    }
+
+    /**
+     * Main method for parsing of a main less file with the results of a previous parsing. Files that are not modified
+     * are not parsed again.
+     * 
+     * @param baseURL
+     *            the URL of the main less file.
+     * @param readerFactory
+     *            A factory for the readers for the main file and imports.
+     * @param mixins
+     *            the empty mixin map that is used for all compiles
+     * @param segments
+     *            the segments of the previous compile
+     * @param usedSegments
+     *            receive the segments of this compile
+     * @return false, if some imports has changed and a replay of segments was not possible. Then the result of the
+     *         parser is invalid and the main less file must be parsed without old segments.
+     * @throws LessException
+     *             if any parsing error occurred
+     */
+    boolean parse( URL baseURL, ReaderFactory readerFactory, HashMultimap<String, Rule> mixins, HashMap<String, ImportSegment> segments, HashMap<String, ImportSegment> usedSegments ) throws LessException {
+        this.readerFactory = readerFactory;
+        this.mixins = mixins;
+        this.segments = segments;
+        this.usedSegments = usedSegments;
+        if( readerFactory instanceof PrefetchReaderFactory ) {
+            prefetches = new HashMap<>();
+        }
+        try {
+            this.baseURL = baseURL;
+            this.relativeURL = new URL( "file", null, "" );
+            this.reader = new LessLookAheadReader( new StringReader( "" ), null, false, false );
+            return loadSegment( new ImportSegment.Import( baseURL, null, relativeURL, false, false, false, false ) );
+        } catch( IOException ex ) {
+            throw new LessException( ex );
+        }
+    }
+
+    /**
+     * Import a file on the root level as segment. Does nothing if the file was already imported.
+     * 
+     * @param source
+     *            the import
+     * @return false, if the replay of a segment was not possible
+     * @throws IOException
+     *             If any I/O error occur on reading a file.
+     */
+    boolean importSegment( ImportSegment.Import source ) throws IOException {
+        if( !imports.add( source.url ) && !source.isMultiple ) {
+            return true;
+        }
+        ImportSegment parent = segment;
+        segment = null; // the content is recorded in the own segment
+        try {
+            if( source.isReferenceSwitch ) {
+                add( new ReferenceInfo( source.isReference ) );
+            }
+            return loadSegment( source );
+        } catch( IOException ex ) {
+            if( source.isOptional ) {
+                return true;
+            }
+            throw ex;
+        } finally {
+            segment = parent;
+        }
+    }
+
+    /**
+     * Replay the segment of a file if it is unchanged, else parse the file.
+     * 
+     * @param source
+     *            the import
+     * @return false, if the replay of a segment was not possible
+     * @throws IOException
+     *             If any I/O error occur on reading a file.
+     */
+    private boolean loadSegment( ImportSegment.Import source ) throws IOException {
+        addSourceName( source.filename, source.relativeURL );
+        ImportSegment cached;
+        if( importCache != null ) {
+            cached = importCache.get( source.key );
+        } else {
+            cached = segments == null ? null : segments.get( source.key );
+        }
+        // a segment which is imported multiple times is parsed for every import that the rules are not shared
+        if( cached != null && !usedSegments.containsKey( source.key ) && cached.isValid() ) {
+            usedSegments.put( source.key, cached );
+            if( !cached.replay( this ) ) {
+                replayFailed = true;
+            }
+            return !replayFailed;
+        }
+
+        Object[] old = { reader, baseURL, relativeURL, segment }; //store on the heap to reduce the stack size
+        try {
+            segment = new ImportSegment( source );
+            baseURL = source.url;
+            relativeURL = source.relativeURL;
+            Future<String> prefetched = prefetches == null ? null : prefetches.get( baseURL.toExternalForm() );
+            Reader importReader = prefetched == null ? readerFactory.create( baseURL ) : PrefetchReaderFactory.get( prefetched );
+            reader = new LessLookAheadReader( importReader, source.filename, source.isReference, source.isMultiple );
+            if( prefetches != null ) {
+                prefetchImports();
+            }
+            parse( this );
+            reader.close();
+            usedSegments.put( source.key, segment );
+            return !replayFailed;
+        } finally {
+            reader = (LessLookAheadReader)old[0];
+            baseURL = (URL)old[1];
+            relativeURL = (URL)old[2];
+            segment = (ImportSegment)old[3];
+        }
+    }
+
+    /**
+     * Set the result of a previous parsing instead of parsing the less data. Used to load a precompiled parse tree.
+     * 
+     * @param baseURL
+     *            the baseURL for import of external less data.
+     * @param readerFactory
+     *            A factory for the readers for lazy imports.
+     * @param variables
+     *            the root variables
+     * @param rules
+     *            the root rules
+     * @param mixins
+     *            all mixins
+     * @param lazyImports
+     *            imports with variables in the file name or null
+     * @param imports
+     *            the already imported URLs
+     * @param endPosition
+     *            the position at the end of the main less data
+     * @throws IOException
+     *             Should never occur
+     */
+    void load( URL baseURL, ReaderFactory readerFactory, HashMap<String, Expression> variables, List<Formattable> rules, HashMultimap<String, Rule> mixins, List<LazyImport> lazyImports, HashSet<URL> imports, LessObject endPosition ) throws IOException {
+        this.baseURL = baseURL;
+        this.readerFactory = readerFactory;
+        this.relativeURL = new URL( "file", null, "" );
+        this.reader = new LessLookAheadReader( new StringReader( "" ), endPosition.filename, false, false );
+        this.reader.line = endPosition.line;
+        this.reader.column = endPosition.column;
+        this.variables = variables;
+        this.rules = rules;
+        this.rulesIdx = rules.size();
+        this.mixins = mixins;
+        this.lazyImports = lazyImports;
+        this.imports = imports;
+    }
+
+    /**
+     * Get all mixins.
+     * 
+     * @return the mixins
+     */
+    HashMultimap<String, Rule> getMixins() {
+        return mixins;
+    }
+
+    /**
+     * Get the imports with variables in the file name which are parsed in {@link #parseLazy(CssFormatter)}.
+     * 
+     * @return the imports or null
+     */
+    List<LazyImport> getLazyImports() {
+        return lazyImports;
+    }
+
+    /**
+     * Get the URLs of all imported files.
+     * 
+     * @return the URLs
+     */
+    HashSet<URL> getImports() {
+        return imports;
+    }
+
+    /**
+     * Get the paths of the imported files relative to the main less file. The key is the file name like it is written
+     * in the import statement. If the same name is used for different files then the first file wins.
+     * 
+     * @return the paths
+     */
+    HashMap<String, String> getSourceNames() {
+        return sourceNames;
+    }
+
+    /**
+     * Record the path of an imported file relative to the main less file.
+     * 
+     * @param filename
+     *            the file name like it is written in the import statement, null for the main file
+     * @param relativeURL
+     *            the URL relative to the main less file
+     */
+    private void addSourceName( String filename, URL relativeURL ) {
+        if( filename != null && !sourceNames.containsKey( filename ) ) {
+            sourceNames.put( filename, relativeURL.getPath() );
+        }
+    }
+
+    /**
+     * Get the current parse position. After parsing this is the end of the main less data.
+     * 
+     * @return the position
+     */
+    LessObject getPosition() {
+        return reader;
+    }
+
     /**
      * If there are some imports with variables then this will parse after a formatter if available.
      * @param formatter the formatter to evaluate variables
@@ -129,6 +418,7 @@ void parseLazy( CssFormatter formatter ) {
                 variables = lazyImport.getVariables();
                 rulesIdx = lazyImport.lastRuleBefore() == null ? 0 : rules.indexOf( lazyImport.lastRuleBefore() ) + 1 ;
                 importFile( this, filename );
+                formatter.variablesChanged();
             }
             formatter.removeVariables( vars );
             variables = vars;
@@ -201,7 +491,7 @@ private void parseSemicolon( FormattableContainer currentRule ) {
                         default:
                             throw createException( "Unrecognized input: '" + ch + "'" );
                     }
-                    currentRule.add( new RuleProperty( name, value ) );
+                    currentRule.add( new RuleProperty( name, folding.fold( value ) ) );
                     return;
                 case '@':
                     ch = read();
@@ -246,6 +536,9 @@ private void parseSemicolon( FormattableContainer currentRule ) {
                         if( selector.contains( ":extend(" ) ) {
                             LessExtend.addLessExtendsTo( currentRule, reader, selector );
                         } else {
+                            if( params != null ) {
+                                folding.fold( params.getOperands() );
+                            }
                             Mixin mixin = new Mixin( reader, selector, params, mixins );
                             currentRule.add( mixin );
                         }
@@ -294,7 +587,11 @@ void parseBlock( FormattableContainer currentRule ) {
                     guard = null;
                     String[] selectors = rule.getSelectors();
                     for( String sel : selectors ) {
-                        mixins.add( sel.trim(), rule );
+                        sel = sel.trim();
+                        mixins.add( sel, rule );
+                        if( segment != null ) {
+                            segment.addMixin( sel, rule );
+                        }
                     }
                     return;
                 case '/':
@@ -426,7 +723,11 @@ private void variable( HashMap<String, Expression> variables, FormattableContain
                 throw createException( "Unrecognized input: '" + ch + "'" );
             }
         }
+        value = folding.fold( value );
         variables.put( name, value );
+        if( segment != null && currentRule == this ) {
+            segment.addVariable( name, value );
+        }
     }
 
     /**
@@ -437,102 +738,24 @@ private void variable( HashMap<String, Expression> variables, FormattableContain
      * @throws LessException if any parsing error occurred
      */
     private void importFile( FormattableContainer currentRule, final String name ) {
-        String filename = name.trim();
-        boolean isReference = reader.isReference();
-        boolean isCss = false;
-        boolean isLess = false;
-        boolean isMultiple = reader.isMultiple();
-        boolean isInline = false;
-        boolean isOptional = false;
-        if( filename.startsWith( "(" ) ) {
-            int endIdx = filename.indexOf( ')', 1);
-            if( endIdx > 0 ) {
-                StringTokenizer tokenizer = new StringTokenizer( filename.substring( 1, endIdx ), "," );
-                filename = name.substring( endIdx + 1 ).trim();
-                while( tokenizer.hasMoreTokens() ) {
-                    String keywordStr = tokenizer.nextToken().trim();
-                    switch( keywordStr ) {
-                        case "inline":
-                            isInline = true;
-                            break;
-                        case "optional":
-                            isOptional = true;
-                            break;
-                        case "once":
-                            isMultiple = false;
-                            break;
-                        case "multiple":
-                            isMultiple = true;
-                            break;
-                        case "less":
-                            isLess = true;
-                            isCss = false;
-                            break;
-                        case "css":
-                            isCss = true;
-                            isLess = false;
-                            break;
-                        case "reference":
-                            isReference = true;
-                            break;
-                        default:
-                            throw new LessException( "Unknown @import keyword: " + keywordStr );
-                    }
-                }
-            }
-        }
+        ImportDirective directive = new ImportDirective( name, reader.isReference(), reader.isMultiple() );
+        boolean isReference = directive.isReference();
+        boolean isMultiple = directive.isMultiple();
+        boolean isInline = directive.isInline();
+        boolean isOptional = directive.isOptional();
 
         Object[] old = { reader, baseURL, relativeURL }; //store on the heap to reduce the stack size
         try {
-            int i;
-            boolean isURL;
-            if( filename.startsWith( "url(" ) ) {
-                i = 4;
-                isURL = true;
-            } else {
-                i = 0;
-                isURL = false;
-            }
-            StringBuilder builder = cachesBuilder;
-            String media = null;
-            char quote = 0;
-            LOOP:
-            for( ; i < filename.length(); i++ ) {
-                char ch = filename.charAt( i );
-                switch(ch){
-                    case '\"':
-                    case '\'':
-                        if( quote == 0 ) {
-                            quote = ch;
-                        } else {
-                            quote = 0;
-                            if( !isURL ) {
-                                break LOOP;
-                            }
-                        }
-                        break;
-                    case '\\':
-                        builder.append( filename.charAt( ++i ) );
-                        break;
-                    case ')':
-                        if( quote == 0 ) {
-                            break LOOP;
-                        }
-                        //$FALL-THROUGH$
-                    default:
-                        builder.append( ch );
-                }
-            }
-            if( i < filename.length() - 1 ) {
+            String media = directive.getMedia();
+            if( media != null ) {
                 //additional content after url(...)
-                media = filename.substring( i + 1 ).trim();
                 Rule rule = new Rule( reader, currentRule, "@media " + media, null, null );
                 currentRule.add( rule );
                 currentRule = rule;
             }
-            filename = trim( builder );
+            String filename = directive.getFilename();
 
-            if( filename.contains( "@{" ) ) { // filename with variable name, we need to parse later
+            if( directive.isLazy() ) { // filename with variable name, we need to parse later
                 if( currentRule != this ) {
                     //import is inside of a mixin and will be process if the mixin will be process
                     currentRule.add( new CssAtRule( reader, "@import " + name + ';' ) );
@@ -548,35 +771,45 @@ private void importFile( FormattableContainer currentRule, final String name ) {
                 lazyImports.add( lazy );
                 return;
             }
-            if( !isLess && !isInline && (isCss || filename.endsWith( "css" )) ) {
-                // filenames ends with "css" will not be inline else a CSS @import directive is written
+            URL url = directive.resolve( baseURL );
+            if( url == null ) {
+                // a CSS @import directive is written
                 currentRule.add( new CssAtRule( reader, "@import " + name + ';') );
                 return;
             }
-            baseURL = baseURL == null ? new URL( filename ) : new URL( baseURL, filename );
-            if( !isLess && !isInline && baseURL.getPath().endsWith( "css" ) ) {
-                // URL path ends with "css" will not be inline else a CSS @import directive is written
-                currentRule.add( new CssAtRule( reader, "@import " + name + ';') );
+            baseURL = url;
+            filename = directive.getFilename();
+            relativeURL = new URL( relativeURL, filename );
+            if( segment != null && currentRule == this && !isInline ) {
+                ImportSegment.Import source = new ImportSegment.Import( baseURL, filename, relativeURL, isReference, isMultiple, isReference != reader.isReference(), isOptional );
+                segment.addImport( source );
+                importSegment( source );
                 return;
             }
-            if( "file".equals( baseURL.getProtocol() ) && filename.lastIndexOf( '.' ) <= filename.lastIndexOf( '/' ) ) {
-                filename += ".less";
-                baseURL = (URL)old[1];
-                baseURL = baseURL == null ? new URL( filename ) : new URL( baseURL, filename );
+            boolean imported = imports.add( baseURL ) || isMultiple;
+            if( segment != null ) {
+                segment.addImport( baseURL, isMultiple, imported );
             }
-            relativeURL = new URL( relativeURL, filename );
-            if( imports.add( baseURL ) || isMultiple ) {
+            if( imported ) {
                 if( isReference != reader.isReference() ) {
                     add( new ReferenceInfo( isReference ) );
                 }
-                Reader importReader = readerFactory.create( baseURL );
+                if( segment != null ) {
+                    segment.addDependency( baseURL );
+                }
+                Future<String> prefetched = prefetches == null ? null : prefetches.get( baseURL.toExternalForm() );
+                Reader importReader = prefetched == null ? readerFactory.create( baseURL ) : PrefetchReaderFactory.get( prefetched );
                 if( isInline ) {
                     Scanner scanner = new Scanner(importReader).useDelimiter( "\\A" );
                     if( scanner.hasNext() ) {
                         currentRule.add( new CssAtRule( reader, scanner.next() ) );
                     }
                 } else {
+                    addSourceName( filename, relativeURL );
                     reader = new LessLookAheadReader( importReader, filename, isReference, isMultiple );
+                    if( prefetches != null ) {
+                        prefetchImports();
+                    }
                     parse( currentRule );
                     reader.close();
                 }
@@ -599,6 +832,36 @@ private void importFile( FormattableContainer currentRule, final String name ) {
         }
     }
 
+    /**
+     * Start the reading of all imports of the current reader in parallel. The file names are resolved with the same
+     * {@link ImportDirective} like in {@link #importFile(FormattableContainer, String)}. An import which is not
+     * executed later has no effect.
+     */
+    private void prefetchImports() {
+        PrefetchReaderFactory factory = (PrefetchReaderFactory)readerFactory;
+        for( String name : reader.scanImports() ) {
+            try {
+                ImportDirective directive = new ImportDirective( name, false, false );
+                if( directive.isLazy() || directive.getFilename().isEmpty() ) {
+                    continue;
+                }
+                URL url = directive.resolve( baseURL );
+                if( url == null ) {
+                    continue;
+                }
+                String key = url.toExternalForm();
+                if( !prefetches.containsKey( key ) ) {
+                    Future<String> future = factory.prefetch( url );
+                    if( future != null ) {
+                        prefetches.put( key, future );
+                    }
+                }
+            } catch( LessException | MalformedURLException ex ) {
+                // will be reported if the import is executed
+            }
+        }
+    }
+
     /**
      * Create a rule and parse the content of an block.
      * 
@@ -1381,6 +1644,9 @@ public void add( Formattable formattable ) {
         if( formattable.getClass() == Rule.class && ((Rule)formattable).isMixin() ) {
             return;
         }
+        if( segment != null ) {
+            segment.add( formattable );
+        }
         rules.add( rulesIdx++, formattable );
     }
 }
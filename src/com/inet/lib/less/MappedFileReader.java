@@ -0,0 +1,129 @@
+/**
+ * MIT License (MIT)
+ *
+ * Copyright (c) 2017 Volker Berlin
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * UT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author Volker Berlin
+ * @license: The MIT license <http://opensource.org/licenses/MIT>
+ */
+package com.inet.lib.less;
+
+import java.io.CharArrayReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+import javax.annotation.Nonnull;
+
+/**
+ * A reader for an UTF-8 encoded file. Large files are memory mapped and decoded directly into the char array that the
+ * LessLookAheadReader use as input buffer. That there is only one copy of the data on the heap.
+ */
+class MappedFileReader extends CharArrayReader {
+
+    /**
+     * Files smaller as this are read into the heap. Mapping has an overhead and hold a lock on some platforms until the
+     * buffer is garbage collected.
+     */
+    private static final int MAP_THRESHOLD = 1024 * 1024;
+
+    /**
+     * Create a reader for the file.
+     *
+     * @param file
+     *            the file
+     * @throws IOException
+     *             if an I/O error occurs reading from the file
+     */
+    MappedFileReader( @Nonnull File file ) throws IOException {
+        this( decode( file ) );
+    }
+
+    /**
+     * Create a reader for decoded chars.
+     *
+     * @param chars
+     *            the decoded content
+     */
+    private MappedFileReader( CharBuffer chars ) {
+        super( chars.array(), 0, chars.position() );
+    }
+
+    /**
+     * Read and decode the file.
+     *
+     * @param file
+     *            the file
+     * @return the decoded chars, the position is the end of the data
+     * @throws IOException
+     *             if an I/O error occurs reading from the file
+     */
+    private static CharBuffer decode( File file ) throws IOException {
+        try( FileChannel channel = FileChannel.open( file.toPath(), StandardOpenOption.READ ) ) {
+            long size = channel.size();
+            if( size > Integer.MAX_VALUE ) {
+                throw new IOException( "File is too large: " + file );
+            }
+            ByteBuffer bytes;
+            if( size < MAP_THRESHOLD ) {
+                bytes = ByteBuffer.allocate( (int)size );
+                while( bytes.hasRemaining() && channel.read( bytes ) >= 0 ) {
+                    // read until the buffer is full
+                }
+                bytes.flip();
+            } else {
+                bytes = channel.map( FileChannel.MapMode.READ_ONLY, 0, size );
+            }
+            // UTF-8 produce never more chars as bytes
+            CharBuffer chars = CharBuffer.allocate( (int)size );
+            CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder() //
+                            .onMalformedInput( CodingErrorAction.REPLACE ) //
+                            .onUnmappableCharacter( CodingErrorAction.REPLACE );
+            decoder.decode( bytes, chars, true );
+            decoder.flush( chars );
+            return chars;
+        }
+    }
+
+    /**
+     * Get the decoded content without copying it.
+     *
+     * @return the buffer, the valid data are from 0 to {@link #getLength()}
+     */
+    char[] getBuffer() {
+        return buf;
+    }
+
+    /**
+     * Get the count of valid chars in the buffer.
+     *
+     * @return the length
+     */
+    int getLength() {
+        return count;
+    }
+}
@@ -75,6 +75,53 @@ class Mixin extends LessObject implements Formattable {
         this.mixins = mixins;
     }
 
+    /**
+     * Create a new instance from already parsed values. Used to load a precompiled parse tree.
+     * @param obj another LessObject with parse position.
+     * @param name the name of the mixin without the important keyword
+     * @param paramValues the parameters or null
+     * @param important if the keyword "!important" was set
+     * @param mixins map with all mixins
+     */
+    Mixin( LessObject obj, String name, List<Expression> paramValues, boolean important, HashMultimap<String,Rule> mixins ) {
+        super( obj );
+        this.name = name;
+        this.paramValues = paramValues;
+        this.important = important;
+        this.mixins = mixins;
+    }
+
+    /**
+     * The name of the called mixin.
+     * @return the name
+     */
+    String getName() {
+        return name;
+    }
+
+    /**
+     * The parameter values of the call.
+     * @return the values or null
+     */
+    List<Expression> getParamValues() {
+        return paramValues;
+    }
+
+    /**
+     * If the mixin was called with "!important".
+     * @return true, if important
+     */
+    boolean isImportant() {
+        return important;
+    }
+
+    /**
+     * Reset the cached matching rules. Required if the mixin is formatted again with a new formatter.
+     */
+    void clearCache() {
+        mixinRules = null;
+    }
+
     /**
      * {@inheritDoc}
      */
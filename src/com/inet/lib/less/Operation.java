@@ -42,6 +42,8 @@ class Operation extends Expression {
     
     private int                         type;
 
+    private int                         parsedType;
+
     private static final HashMap<String, HashMap<String, Double>> UNIT_CONVERSIONS = new HashMap<>();
     static {
         HashMap<String, Double> length = new HashMap<>();
@@ -180,6 +182,23 @@ public int getDataType( CssFormatter formatter ) {
      */
     void setDataType( int type ) {
         this.type = type;
+        this.parsedType = type;
+    }
+
+    /**
+     * Reset the evaluated data type to the type from the parser. Required if the operation is formatted again with
+     * changed variables.
+     */
+    void clearCache() {
+        type = parsedType;
+    }
+
+    /**
+     * Get the data type without evaluating it.
+     * @return the injected or already evaluated type, or UNKNOWN
+     */
+    int getKnownDataType() {
+        return type;
     }
 
     /**
@@ -0,0 +1,836 @@
+/**
+ * MIT License (MIT)
+ *
+ * Copyright (c) 2017 Volker Berlin
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * UT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author Volker Berlin
+ * @license: The MIT license <http://opensource.org/licenses/MIT>
+ */
+package com.inet.lib.less;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Objects;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * The binary format of a parsed less file. It save the result of {@link LessParser} that a later compile must only
+ * format the rules. The file starts with a header with the version of the format, the version of the library and the
+ * time stamp and size of all parsed source files. If any of it does not match then the precompiled data are stale and
+ * the less file must be parsed again.
+ * <p>
+ * Strings are saved only once and later referenced by an index. Objects which are referenced multiple times in the
+ * parse tree, like the variables of a lazy import, are also saved only once.
+ * <p>
+ * The recorded changes of an {@link ImportSegment} are saved in the same format but without a header.
+ */
+class PrecompiledLess {
+
+    private static final int               MAGIC          = 0x4C455343; // LESC
+
+    /**
+     * The version of the format. Must be increment on any change of the format or the parse tree.
+     */
+    private static final int               VERSION        = 2;
+
+    /**
+     * The version of the library from the manifest of the jar file or null if unknown. Snapshot builds can change the
+     * parse tree without a change of {@link #VERSION}.
+     */
+    private static final String            LIB_VERSION    = getLibraryVersion();
+
+    private static final int               NULL           = 0;
+
+    private static final int               REF            = 1;
+
+    private static final int               RULE           = 2;
+
+    private static final int               RULE_PROPERTY  = 3;
+
+    private static final int               MIXIN          = 4;
+
+    private static final int               LESS_EXTEND    = 5;
+
+    private static final int               COMMENT        = 6;
+
+    private static final int               CSS_AT_RULE    = 7;
+
+    private static final int               REFERENCE_INFO = 8;
+
+    private static final int               VALUE          = 9;
+
+    private static final int               VARIABLE       = 10;
+
+    private static final int               OPERATION      = 11;
+
+    private static final int               FUNCTION       = 12;
+
+    private static final int               JAVASCRIPT     = 13;
+
+    private static final int               LAZY_IMPORT    = 14;
+
+    private static final int               MAP            = 15;
+
+    private static final int               DEFAULTED_MAP  = 16;
+
+    private static final int               IMPORT         = 17;
+
+    private static final int               IMPORT_CHECK   = 18;
+
+    private static final int               PUT            = 19;
+
+    private DataOutputStream               output;
+
+    private DataInputStream                input;
+
+    private final HashMap<String, Integer> stringIndex    = new HashMap<>();
+
+    private final ArrayList<String>        strings        = new ArrayList<>();
+
+    private final IdentityHashMap<Object, Integer> objectIndex = new IdentityHashMap<>();
+
+    private final ArrayList<Object>        objects        = new ArrayList<>();
+
+    private HashMultimap<String, Rule>     mixins;
+
+    /**
+     * Only the static methods create instances.
+     */
+    private PrecompiledLess() {
+    }
+
+    /**
+     * Write the result of the parser.
+     *
+     * @param parser
+     *            the parser after parsing and before formatting
+     * @param baseURL
+     *            the URL of the parsed less file
+     * @param output
+     *            the target, will not be closed
+     * @throws IOException
+     *             if an I/O error occurs
+     */
+    static void write( @Nonnull LessParser parser, @Nonnull URL baseURL, @Nonnull OutputStream output ) throws IOException {
+        write( parser, baseURL, output, LIB_VERSION );
+    }
+
+    /**
+     * Write the result of the parser with the given library version in the header.
+     *
+     * @param parser
+     *            the parser after parsing and before formatting
+     * @param baseURL
+     *            the URL of the parsed less file
+     * @param output
+     *            the target, will not be closed
+     * @param libraryVersion
+     *            the version of the library that writes the data or null if unknown
+     * @throws IOException
+     *             if an I/O error occurs
+     */
+    static void write( @Nonnull LessParser parser, @Nonnull URL baseURL, @Nonnull OutputStream output, @Nullable String libraryVersion ) throws IOException {
+        PrecompiledLess writer = new PrecompiledLess();
+        writer.output = new DataOutputStream( output );
+        writer.write( parser, baseURL, libraryVersion );
+        writer.output.flush();
+    }
+
+    /**
+     * Load a parser with the precompiled data.
+     *
+     * @param input
+     *            the precompiled data, will not be closed
+     * @param baseURL
+     *            the URL of the less file
+     * @param readerFactory
+     *            A factory for the readers for lazy imports.
+     * @return the loaded parser or null if the data are stale or invalid
+     */
+    @Nullable
+    static LessParser read( @Nonnull InputStream input, @Nonnull URL baseURL, @Nonnull ReaderFactory readerFactory ) {
+        PrecompiledLess reader = new PrecompiledLess();
+        reader.input = new DataInputStream( input );
+        try {
+            return reader.read( baseURL, readerFactory );
+        } catch( IOException | RuntimeException ex ) {
+            return null; // corrupt data, the less file must be parsed
+        }
+    }
+
+    /**
+     * Write the recorded changes of an import segment.
+     *
+     * @param events
+     *            the changes in the order of parsing
+     * @return the serialized data
+     * @throws IOException
+     *             if the changes contain a type which is not supported
+     */
+    @Nonnull
+    static byte[] writeSegment( @Nonnull List<Object> events ) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        PrecompiledLess writer = new PrecompiledLess();
+        writer.output = new DataOutputStream( bytes );
+        writer.writeList( events );
+        writer.output.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Read the recorded changes of an import segment. Every call creates new objects.
+     *
+     * @param data
+     *            the data from {@link #writeSegment(List)}
+     * @param mixins
+     *            the mixins of the parser which replay the changes
+     * @return the changes in the order of parsing
+     * @throws IOException
+     *             if the data are corrupt
+     */
+    @Nonnull
+    static List<Object> readSegment( @Nonnull byte[] data, @Nonnull HashMultimap<String, Rule> mixins ) throws IOException {
+        PrecompiledLess reader = new PrecompiledLess();
+        reader.input = new DataInputStream( new ByteArrayInputStream( data ) );
+        reader.mixins = mixins;
+        return reader.readList();
+    }
+
+    /**
+     * Get the version of this library from the manifest of the jar file.
+     *
+     * @return the version or null if there is no manifest, for example if the classes are not in a jar file
+     */
+    @Nullable
+    private static String getLibraryVersion() {
+        Package pack = PrecompiledLess.class.getPackage();
+        return pack == null ? null : pack.getImplementationVersion();
+    }
+
+    /**
+     * Write the header and the parse tree.
+     *
+     * @param parser
+     *            the parser after parsing
+     * @param baseURL
+     *            the URL of the parsed less file
+     * @param libraryVersion
+     *            the version of the library that writes the data or null if unknown
+     * @throws IOException
+     *             if an I/O error occurs
+     */
+    private void write( LessParser parser, URL baseURL, String libraryVersion ) throws IOException {
+        output.writeInt( MAGIC );
+        output.writeInt( VERSION );
+        writeString( libraryVersion );
+        writeString( baseURL.toExternalForm() );
+        HashSet<URL> imports = parser.getImports();
+        writeInt( imports.size() + 1 );
+        writeSource( baseURL );
+        for( URL url : imports ) {
+            writeSource( url );
+        }
+
+        writeObject( parser.getVariables() );
+        writeList( parser.getRules() );
+        List<Entry<String, List<Rule>>> entries = new ArrayList<>( parser.getMixins().entrySet() );
+        writeInt( entries.size() );
+        for( Entry<String, List<Rule>> entry : entries ) {
+            writeString( entry.getKey() );
+            writeList( entry.getValue() );
+        }
+        writeList( parser.getLazyImports() );
+        writePosition( parser.getPosition() );
+        output.writeInt( MAGIC );
+    }
+
+    /**
+     * Read the header and the parse tree.
+     *
+     * @param baseURL
+     *            the URL of the less file
+     * @param readerFactory
+     *            A factory for the readers for lazy imports.
+     * @return the loaded parser or null if the data are stale
+     * @throws IOException
+     *             if an I/O error occurs or the data are corrupt
+     */
+    @SuppressWarnings( "unchecked" )
+    private LessParser read( URL baseURL, ReaderFactory readerFactory ) throws IOException {
+        if( input.readInt() != MAGIC || input.readInt() != VERSION || !Objects.equals( readString(), LIB_VERSION ) || !baseURL.toExternalForm().equals( readString() ) ) {
+            return null;
+        }
+        HashSet<URL> imports = new HashSet<>();
+        int count = readInt();
+        for( int i = 0; i < count; i++ ) {
+            URL url = new URL( readString() );
+            long lastModified = input.readLong();
+            long length = input.readLong();
+            File file = CachedReaderFactory.getValidationFile( url );
+            if( file != null && (file.lastModified() != lastModified || file.length() != length) ) {
+                return null;
+            }
+            if( i > 0 ) {
+                imports.add( url );
+            }
+        }
+
+        mixins = new HashMultimap<>();
+        HashMap<String, Expression> variables = (HashMap<String, Expression>)readObject();
+        List<Formattable> rules = readList();
+        count = readInt();
+        for( int i = 0; i < count; i++ ) {
+            String name = readString();
+            List<Rule> list = readList();
+            for( Rule rule : list ) {
+                mixins.add( name, rule );
+            }
+        }
+        List<LazyImport> lazyImports = readList();
+        LessObject endPosition = readPosition();
+        if( input.readInt() != MAGIC ) {
+            return null;
+        }
+
+        LessParser parser = new LessParser();
+        parser.load( baseURL, readerFactory, variables, rules, mixins, lazyImports, imports, endPosition );
+        return parser;
+    }
+
+    /**
+     * Write the URL of a source file with the time stamp and size of the file. If the URL can not validated then the
+     * values are -1.
+     *
+     * @param url
+     *            the URL of a parsed file
+     * @throws IOException
+     *             if an I/O error occurs
+     */
+    private void writeSource( URL url ) throws IOException {
+        writeString( url.toExternalForm() );
+        File file = CachedReaderFactory.getValidationFile( url );
+        output.writeLong( file == null ? -1 : file.lastModified() );
+        output.writeLong( file == null ? -1 : file.length() );
+    }
+
+    /**
+     * Write a node of the parse tree. An object that was already written is saved as reference.
+     *
+     * @param obj
+     *            the node or null
+     * @throws IOException
+     *             if an I/O error occurs or the type is not supported
+     */
+    @SuppressWarnings( "unchecked" )
+    private void writeObject( Object obj ) throws IOException {
+        if( obj == null ) {
+            writeInt( NULL );
+            return;
+        }
+        Integer idx = objectIndex.get( obj );
+        if( idx != null ) {
+            writeInt( REF );
+            writeInt( idx );
+            return;
+        }
+        Class<?> clazz = obj.getClass();
+        if( clazz == Rule.class ) {
+            Rule rule = (Rule)obj;
+            writeInt( RULE );
+            writePosition( rule );
+            String[] selectors = rule.getSelectors();
+            writeInt( selectors.length );
+            for( String selector : selectors ) {
+                writeString( selector );
+            }
+            writeList( rule.getParams() );
+            writeObject( rule.getVarArg() );
+            writeObject( rule.getGuard() );
+            writeList( rule.getProperties() );
+            writeEntries( rule.getVariables() );
+        } else if( clazz == RuleProperty.class ) {
+            RuleProperty property = (RuleProperty)obj;
+            writeInt( RULE_PROPERTY );
+            writeString( property.getName() );
+            writeObject( property.getValue() );
+        } else if( clazz == Mixin.class ) {
+            Mixin mixin = (Mixin)obj;
+            writeInt( MIXIN );
+            writePosition( mixin );
+            writeString( mixin.getName() );
+            writeList( mixin.getParamValues() );
+            output.writeBoolean( mixin.isImportant() );
+        } else if( clazz == LessExtend.class ) {
+            LessExtend extend = (LessExtend)obj;
+            writeInt( LESS_EXTEND );
+            writePosition( extend );
+            writeString( extend.getSelector() );
+            writeString( extend.getExtendingSelector() );
+            output.writeBoolean( extend.isAll() );
+        } else if( clazz == Comment.class ) {
+            writeInt( COMMENT );
+            writeString( ((Comment)obj).getMessage() );
+        } else if( clazz == CssAtRule.class ) {
+            CssAtRule atRule = (CssAtRule)obj;
+            writeInt( CSS_AT_RULE );
+            writePosition( atRule );
+            writeString( atRule.getCss() );
+        } else if( clazz == ReferenceInfo.class ) {
+            writeInt( REFERENCE_INFO );
+            output.writeBoolean( ((ReferenceInfo)obj).isReference() );
+        } else if( clazz == ValueExpression.class ) {
+            ValueExpression value = (ValueExpression)obj;
+            writeInt( VALUE );
+            writeExpression( value );
+            int type = value.getKnownDataType();
+            writeInt( type );
+            if( type != Expression.UNKNOWN ) {
+                output.writeLong( Double.doubleToRawLongBits( value.getKnownValue() ) );
+                writeString( value.getKnownUnit() );
+                writeObject( value.getKnownList() );
+            }
+        } else if( clazz == VariableExpression.class ) {
+            writeInt( VARIABLE );
+            writeExpression( (Expression)obj );
+        } else if( clazz == Operation.class ) {
+            Operation operation = (Operation)obj;
+            writeInt( OPERATION );
+            writeExpression( operation );
+            writeInt( operation.getOperator() );
+            writeInt( operation.getKnownDataType() );
+            writeList( operation.getOperands() );
+        } else if( clazz == FunctionExpression.class ) {
+            FunctionExpression function = (FunctionExpression)obj;
+            writeInt( FUNCTION );
+            writeExpression( function );
+            writeList( function.getParameters() );
+        } else if( clazz == JavaScriptExpression.class ) {
+            writeInt( JAVASCRIPT );
+            writeExpression( (Expression)obj );
+        } else if( clazz == LazyImport.class ) {
+            LazyImport lazy = (LazyImport)obj;
+            writeInt( LAZY_IMPORT );
+            writeExpression( lazy );
+            URL url = lazy.getBaseUrl();
+            writeString( url == null ? null : url.toExternalForm() );
+            writeObject( lazy.getVariables() );
+            writeObject( lazy.lastRuleBefore() );
+        } else if( clazz == HashMap.class ) {
+            writeInt( MAP );
+            writeEntries( (Map<String, Expression>)obj );
+        } else if( clazz == DefaultedHashMap.class ) {
+            DefaultedHashMap<String, Expression> map = (DefaultedHashMap<String, Expression>)obj;
+            writeInt( DEFAULTED_MAP );
+            writeObject( map.getDefaultValues() );
+            writeEntries( map );
+        } else if( clazz == ImportSegment.Import.class ) {
+            ImportSegment.Import source = (ImportSegment.Import)obj;
+            writeInt( IMPORT );
+            writeString( source.url.toExternalForm() );
+            writeString( source.filename );
+            writeString( source.relativeURL.toExternalForm() );
+            output.writeBoolean( source.isReference );
+            output.writeBoolean( source.isMultiple );
+            output.writeBoolean( source.isReferenceSwitch );
+            output.writeBoolean( source.isOptional );
+        } else if( clazz == ImportSegment.ImportCheck.class ) {
+            ImportSegment.ImportCheck check = (ImportSegment.ImportCheck)obj;
+            writeInt( IMPORT_CHECK );
+            writeString( check.url.toExternalForm() );
+            output.writeBoolean( check.isMultiple );
+            output.writeBoolean( check.imported );
+        } else if( clazz == ImportSegment.Put.class ) {
+            ImportSegment.Put put = (ImportSegment.Put)obj;
+            writeInt( PUT );
+            output.writeBoolean( put.mixin );
+            writeString( put.name );
+            writeObject( put.value );
+        } else {
+            throw new IOException( "Unsupported type in parse tree: " + clazz.getName() );
+        }
+        objectIndex.put( obj, objectIndex.size() );
+    }
+
+    /**
+     * Read a node of the parse tree.
+     *
+     * @return the node or null
+     * @throws IOException
+     *             if an I/O error occurs or the data are corrupt
+     */
+    @SuppressWarnings( "unchecked" )
+    private Object readObject() throws IOException {
+        int tag = readInt();
+        Object obj;
+        switch( tag ) {
+            case NULL:
+                return null;
+            case REF:
+                return objects.get( readInt() );
+            case RULE:
+                LessObject pos = readPosition();
+                String[] selectors = new String[readInt()];
+                for( int i = 0; i < selectors.length; i++ ) {
+                    selectors[i] = readString();
+                }
+                List<Expression> params = readList();
+                VariableExpression varArg = (VariableExpression)readObject();
+                Expression guard = (Expression)readObject();
+                Rule rule = new Rule( pos, selectors, params, varArg, guard );
+                List<Formattable> properties = readList();
+                for( Formattable property : properties ) {
+                    rule.add( property );
+                }
+                readEntries( rule.getVariables() );
+                obj = rule;
+                break;
+            case RULE_PROPERTY:
+                obj = new RuleProperty( readString(), (Expression)readObject() );
+                break;
+            case MIXIN:
+                obj = new Mixin( readPosition(), readString(), this.<Expression>readList(), input.readBoolean(), mixins );
+                break;
+            case LESS_EXTEND:
+                obj = new LessExtend( readPosition(), new String[] { readString() }, readString(), input.readBoolean() );
+                break;
+            case COMMENT:
+                obj = new Comment( readString() );
+                break;
+            case CSS_AT_RULE:
+                obj = new CssAtRule( readPosition(), readString() );
+                break;
+            case REFERENCE_INFO:
+                obj = new ReferenceInfo( input.readBoolean() );
+                break;
+            case VALUE:
+                pos = readPosition();
+                String str = readString();
+                boolean important = input.readBoolean();
+                int type = readInt();
+                Expression expr;
+                if( type == Expression.UNKNOWN ) {
+                    expr = new ValueExpression( pos, str );
+                } else {
+                    double value = Double.longBitsToDouble( input.readLong() );
+                    expr = new ValueExpression( pos, str, type, value, readString(), (Operation)readObject() );
+                }
+                obj = important( expr, important );
+                break;
+            case VARIABLE:
+                pos = readPosition();
+                obj = important( new VariableExpression( pos, readString() ), input.readBoolean() );
+                break;
+            case OPERATION:
+                pos = readPosition();
+                str = readString();
+                important = input.readBoolean();
+                Operation operation = new Operation( pos, (char)readInt() );
+                operation.setDataType( readInt() );
+                for( Expression operand : this.<Expression>readList() ) {
+                    operation.addOperand( operand );
+                }
+                obj = important( operation, important );
+                break;
+            case FUNCTION:
+                pos = readPosition();
+                str = readString();
+                important = input.readBoolean();
+                Operation parameters = new Operation( pos );
+                for( Expression parameter : this.<Expression>readList() ) {
+                    parameters.addOperand( parameter );
+                }
+                obj = important( new FunctionExpression( pos, str, parameters ), important );
+                break;
+            case JAVASCRIPT:
+                pos = readPosition();
+                obj = important( new JavaScriptExpression( pos, readString() ), input.readBoolean() );
+                break;
+            case LAZY_IMPORT:
+                pos = readPosition();
+                str = readString();
+                important = input.readBoolean();
+                String url = readString();
+                HashMap<String, Expression> variables = (HashMap<String, Expression>)readObject();
+                Formattable lastRuleBefore = (Formattable)readObject();
+                obj = important( new LazyImport( pos, url == null ? null : new URL( url ), str, variables, lastRuleBefore ), important );
+                break;
+            case MAP:
+                HashMap<String, Expression> map = new HashMap<>();
+                readEntries( map );
+                obj = map;
+                break;
+            case DEFAULTED_MAP:
+                map = new DefaultedHashMap<>( (HashMap<String, Expression>)readObject() );
+                readEntries( map );
+                obj = map;
+                break;
+            case IMPORT:
+                URL importURL = new URL( readString() );
+                String filename = readString();
+                URL relativeURL = new URL( readString() );
+                obj = new ImportSegment.Import( importURL, filename, relativeURL, input.readBoolean(), input.readBoolean(), input.readBoolean(), input.readBoolean() );
+                break;
+            case IMPORT_CHECK:
+                obj = new ImportSegment.ImportCheck( new URL( readString() ), input.readBoolean(), input.readBoolean() );
+                break;
+            case PUT:
+                boolean mixin = input.readBoolean();
+                obj = new ImportSegment.Put( mixin, readString(), readObject() );
+                break;
+            default:
+                throw new IOException( "Unknown tag: " + tag );
+        }
+        objects.add( obj );
+        return obj;
+    }
+
+    /**
+     * Set the important flag of a loaded expression.
+     *
+     * @param expr
+     *            the expression
+     * @param important
+     *            the saved flag
+     * @return the expression
+     */
+    private static Expression important( Expression expr, boolean important ) {
+        if( important ) {
+            expr.setImportant();
+        }
+        return expr;
+    }
+
+    /**
+     * Write the common values of an expression. The reader read it in the same order: position, string and the
+     * important flag.
+     *
+     * @param expr
+     *            the expression
+     * @throws IOException
+     *             if an I/O error occurs
+     */
+    private void writeExpression( Expression expr ) throws IOException {
+        writePosition( expr );
+        writeString( expr.toString() );
+        output.writeBoolean( expr.isImportant() );
+    }
+
+    /**
+     * Write a list of nodes.
+     *
+     * @param list
+     *            the list or null
+     * @throws IOException
+     *             if an I/O error occurs
+     */
+    private void writeList( List<?> list ) throws IOException {
+        if( list == null ) {
+            writeInt( 0 );
+            return;
+        }
+        writeInt( list.size() + 1 );
+        for( Object obj : list ) {
+            writeObject( obj );
+        }
+    }
+
+    /**
+     * Read a list of nodes.
+     *
+     * @param <T>
+     *            the type of the list items
+     * @return the list or null
+     * @throws IOException
+     *             if an I/O error occurs or the data are corrupt
+     */
+    @SuppressWarnings( "unchecked" )
+    private <T> List<T> readList() throws IOException {
+        int size = readInt() - 1;
+        if( size < 0 ) {
+            return null;
+        }
+        ArrayList<T> list = new ArrayList<>( size );
+        for( int i = 0; i < size; i++ ) {
+            list.add( (T)readObject() );
+        }
+        return list;
+    }
+
+    /**
+     * Write the own entries of a variable map without the default values.
+     *
+     * @param map
+     *            the map
+     * @throws IOException
+     *             if an I/O error occurs
+     */
+    private void writeEntries( Map<String, Expression> map ) throws IOException {
+        List<Entry<String, Expression>> entries = new ArrayList<>( map.entrySet() );
+        writeInt( entries.size() );
+        for( Entry<String, Expression> entry : entries ) {
+            writeString( entry.getKey() );
+            writeObject( entry.getValue() );
+        }
+    }
+
+    /**
+     * Read the entries of a variable map.
+     *
+     * @param map
+     *            the target
+     * @throws IOException
+     *             if an I/O error occurs or the data are corrupt
+     */
+    private void readEntries( Map<String, Expression> map ) throws IOException {
+        int size = readInt();
+        for( int i = 0; i < size; i++ ) {
+            map.put( readString(), (Expression)readObject() );
+        }
+    }
+
+    /**
+     * Write the parse position.
+     *
+     * @param obj
+     *            the object with the position
+     * @throws IOException
+     *             if an I/O error occurs
+     */
+    private void writePosition( LessObject obj ) throws IOException {
+        writeString( obj.filename );
+        writeInt( obj.line );
+        writeInt( obj.column );
+    }
+
+    /**
+     * Read a parse position.
+     *
+     * @return a object with the position
+     * @throws IOException
+     *             if an I/O error occurs
+     */
+    private LessObject readPosition() throws IOException {
+        LessObject obj = new LessObject( readString() );
+        obj.line = readInt();
+        obj.column = readInt();
+        return obj;
+    }
+
+    /**
+     * Write a string. A string that was already written is saved as index.
+     *
+     * @param str
+     *            the string or null
+     * @throws IOException
+     *             if an I/O error occurs
+     */
+    private void writeString( String str ) throws IOException {
+        if( str == null ) {
+            writeInt( 0 );
+            return;
+        }
+        Integer idx = stringIndex.get( str );
+        if( idx != null ) {
+            writeInt( idx + 2 );
+            return;
+        }
+        stringIndex.put( str, stringIndex.size() );
+        byte[] bytes = str.getBytes( StandardCharsets.UTF_8 );
+        writeInt( 1 );
+        writeInt( bytes.length );
+        output.write( bytes );
+    }
+
+    /**
+     * Read a string.
+     *
+     * @return the string or null
+     * @throws IOException
+     *             if an I/O error occurs or the data are corrupt
+     */
+    private String readString() throws IOException {
+        int idx = readInt();
+        switch( idx ) {
+            case 0:
+                return null;
+            case 1:
+                byte[] bytes = new byte[readInt()];
+                input.readFully( bytes );
+                String str = new String( bytes, StandardCharsets.UTF_8 );
+                strings.add( str );
+                return str;
+            default:
+                return strings.get( idx - 2 );
+        }
+    }
+
+    /**
+     * Write an integer with a variable length of 1 to 5 bytes. Small values need fewer bytes.
+     *
+     * @param value
+     *            the value
+     * @throws IOException
+     *             if an I/O error occurs
+     */
+    private void writeInt( int value ) throws IOException {
+        while( (value & ~0x7F) != 0 ) {
+            output.write( (value & 0x7F) | 0x80 );
+            value >>>= 7;
+        }
+        output.write( value );
+    }
+
+    /**
+     * Read an integer with a variable length.
+     *
+     * @return the value
+     * @throws IOException
+     *             if an I/O error occurs or the data are corrupt
+     */
+    private int readInt() throws IOException {
+        int value = 0;
+        for( int shift = 0; shift < 35; shift += 7 ) {
+            int b = input.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if( (b & 0x80) == 0 ) {
+                return value;
+            }
+        }
+        throw new IOException( "Malformed integer" );
+    }
+}
@@ -0,0 +1,141 @@
+/**
+ * MIT License (MIT)
+ *
+ * Copyright (c) 2017 Volker Berlin
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * UT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author Volker Berlin
+ * @license: The MIT license <http://opensource.org/licenses/MIT>
+ */
+package com.inet.lib.less;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.net.URL;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * A ReaderFactory that read the imports of a less file in parallel. The parser scan every loaded file for
+ * <code>@import</code> directives and start reading of the files on the executor. If the parser reach the import then
+ * it wait only for the already running read. Imports with variables in the file name are not prefetched. The instance
+ * can be shared between threads and compiles.
+ */
+public class PrefetchReaderFactory extends ReaderFactory {
+
+    private final ReaderFactory factory;
+
+    private final Executor      executor;
+
+    /**
+     * Create a prefetching factory which read the files with the default ReaderFactory.
+     * 
+     * @param executor
+     *            the executor for the read tasks
+     */
+    public PrefetchReaderFactory( @Nonnull Executor executor ) {
+        this( new ReaderFactory(), executor );
+    }
+
+    /**
+     * Create a prefetching factory.
+     * 
+     * @param factory
+     *            the factory that read the files, must be thread safe
+     * @param executor
+     *            the executor for the read tasks
+     */
+    public PrefetchReaderFactory( @Nonnull ReaderFactory factory, @Nonnull Executor executor ) {
+        this.factory = factory;
+        this.executor = executor;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Reader create( URL url ) throws IOException {
+        return factory.create( url );
+    }
+
+    /**
+     * Start the reading of an URL on the executor.
+     * 
+     * @param url
+     *            the url of an import
+     * @return the future content or null if the executor reject the task
+     */
+    @Nullable
+    Future<String> prefetch( final URL url ) {
+        FutureTask<String> task = new FutureTask<>( new Callable<String>() {
+            @Override
+            public String call() throws IOException {
+                try( Reader reader = factory.create( url ) ) {
+                    return readAll( reader );
+                }
+            }
+        } );
+        try {
+            executor.execute( task );
+        } catch( RejectedExecutionException ex ) {
+            return null;
+        }
+        return task;
+    }
+
+    /**
+     * Wait for the content of a prefetched URL.
+     * 
+     * @param future
+     *            the result of {@link #prefetch(URL)}
+     * @return a reader for the content
+     * @throws IOException
+     *             if the reading failed
+     */
+    static Reader get( Future<String> future ) throws IOException {
+        try {
+            return new StringReader( future.get() );
+        } catch( InterruptedException ex ) {
+            Thread.currentThread().interrupt();
+            throw (IOException)new InterruptedIOException().initCause( ex );
+        } catch( ExecutionException ex ) {
+            Throwable cause = ex.getCause();
+            if( cause instanceof IOException ) {
+                throw (IOException)cause;
+            }
+            if( cause instanceof RuntimeException ) {
+                throw (RuntimeException)cause;
+            }
+            if( cause instanceof Error ) {
+                throw (Error)cause;
+            }
+            throw new IOException( cause );
+        }
+    }
+}
@@ -26,9 +26,11 @@
  */
 package com.inet.lib.less;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.Reader;
+import java.net.URISyntaxException;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
 
@@ -39,7 +41,7 @@
 public class ReaderFactory {
 
     /**
-     * Create a Reader for the given URL.
+     * Create a Reader for the given URL. Files of the local file system are read with a memory mapped file if large.
      * 
      * @param url
      *            the url, not null
@@ -48,6 +50,36 @@ public class ReaderFactory {
      *             If any I/O error occur on reading the URL.
      */
     public Reader create( URL url ) throws IOException {
+        if( "file".equals( url.getProtocol() ) ) {
+            File file;
+            try {
+                file = new File( url.toURI() );
+            } catch( URISyntaxException | IllegalArgumentException ex ) {
+                file = null; // a not hierarchical URL, the stream of the URL handler is used
+            }
+            if( file != null ) {
+                return new MappedFileReader( file );
+            }
+        }
         return new InputStreamReader( url.openStream(), StandardCharsets.UTF_8 );
     }
+
+    /**
+     * Read the complete content of a reader.
+     * 
+     * @param reader
+     *            the reader, will not be closed
+     * @return the content
+     * @throws IOException
+     *             If any I/O error occur on reading.
+     */
+    static String readAll( Reader reader ) throws IOException {
+        StringBuilder builder = new StringBuilder();
+        char[] buffer = new char[8192];
+        int count;
+        while( (count = reader.read( buffer )) >= 0 ) {
+            builder.append( buffer, 0, count );
+        }
+        return builder.toString();
+    }
 }
@@ -46,6 +46,8 @@ class Rule extends LessObject implements Formattable, FormattableContainer {
 
     private String[]                    selectors;
 
+    private int[]                       placeHolders;
+
     private final List<Expression>      params;
     
     private VariableExpression          varArg;
@@ -58,6 +60,8 @@ class Rule extends LessObject implements Formattable, FormattableContainer {
 
     private HashMap<String, Expression> variables  = new HashMap<>();
 
+    private Map<String, List<Rule>>     mixinIndex;
+
     /**
      * Create new instance.
      * 
@@ -71,6 +75,7 @@ class Rule extends LessObject implements Formattable, FormattableContainer {
         super( obj );
         this.parent = parent;
         this.selectors = SelectorUtils.split( selectors  );
+        this.placeHolders = SelectorUtils.placeHolderIndexes( this.selectors );
         if( params == null ) {
             this.params = null;
         } else {
@@ -90,6 +95,24 @@ class Rule extends LessObject implements Formattable, FormattableContainer {
         this.guard = guard;
     }
 
+    /**
+     * Create a new instance from already parsed values. Used to load a precompiled parse tree.
+     * 
+     * @param obj another LessObject with parse position.
+     * @param selectors the split selectors of the rule
+     * @param params the parameter if the rule is a mixin, without a variable argument
+     * @param varArg the variable argument of a mixin or null
+     * @param guard a guard condition for the mixin or CSS rule
+     */
+    Rule( LessObject obj, String[] selectors, @Nullable List<Expression> params, @Nullable VariableExpression varArg, @Nullable Expression guard ) {
+        super( obj );
+        this.selectors = selectors;
+        this.placeHolders = SelectorUtils.placeHolderIndexes( selectors );
+        this.params = params;
+        this.varArg = varArg;
+        this.guard = guard;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -106,6 +129,7 @@ public void add( Formattable formattable ) {
         properties.add( formattable );
         if( formattable instanceof Rule ) {
             subrules.add( (Rule)formattable );
+            mixinIndex = null;
         }
     }
 
@@ -134,14 +158,13 @@ void appendTo( @Nullable String[] mainSelector, CssFormatter formatter ) {
         try {
             String[] sel = selectors;
 
-            for( int s = 0; s < sel.length; s++ ) {
-                final String selector = sel[s];
-                String str = SelectorUtils.replacePlaceHolder( formatter, selector, this );
-                if( selector != str ) {
-                    if( sel == selectors ) {
-                        sel = sel.clone(); // we does not want change the declaration of this selectors
+            if( placeHolders != null ) {
+                sel = sel.clone(); // we does not want change the declaration of this selectors
+                for( int s = 0; s < sel.length; s++ ) {
+                    int pos = placeHolders[s];
+                    if( pos >= 0 ) {
+                        sel[s] = SelectorUtils.replacePlaceHolder( formatter, sel[s], pos, this );
                     }
-                    sel[s] = str;
                 }
             }
 
@@ -163,9 +186,11 @@ void appendTo( @Nullable String[] mainSelector, CssFormatter formatter ) {
             } else {
                 if( properties.size() > 0 ) {
                     int size0 = formatter.getOutputSize();
-                    CssFormatter block = formatter.startBlock( sel );
+                    CssFormatter block = formatter.startBlock( sel, this );
                     int size1 = block.getOutputSize();
-                    appendPropertiesTo( block );
+                    if( !hasOnlyDeclarations() || !block.isHiddenReference( sel ) ) {
+                        appendPropertiesTo( block );
+                    }
                     int size2 = block.getOutputSize();
                     block.endBlock();
                     if( block == formatter && size1 == size2 ) {
@@ -210,13 +235,15 @@ private void bubbling( String[] mediaSelector, String[] blockSelector, CssFormat
             if( media.startsWith( "@media" ) || media.startsWith( "@supports" ) || media.startsWith( "@document" ) ) {
                 // conditional directives
                 int size0 = formatter.getOutputSize();
-                CssFormatter block = formatter.startBlock( mediaSelector );
+                CssFormatter block = formatter.startBlock( mediaSelector, this );
                 if( block != formatter ) {
                     size0 = block.getOutputSize();
                 }
-                CssFormatter block2 = block.startBlock( blockSelector );
+                CssFormatter block2 = block.startBlock( blockSelector, this );
                 int size1 = block2.getOutputSize();
-                appendPropertiesTo( block2 );
+                if( !hasOnlyDeclarations() || !block2.isHiddenReference( blockSelector ) ) {
+                    appendPropertiesTo( block2 );
+                }
                 int size2 = block2.getOutputSize();
                 block2.endBlock();
                 int size3 = block.getOutputSize();
@@ -232,7 +259,7 @@ private void bubbling( String[] mediaSelector, String[] blockSelector, CssFormat
                 }
             } else {
                 // non-conditional directives for example @font-face or @keyframes
-                CssFormatter block = formatter.startBlock( mediaSelector );
+                CssFormatter block = formatter.startBlock( mediaSelector, this );
                 appendPropertiesTo( block );
                 for( Rule rule : subrules ) {
                     rule.appendTo( null, block );
@@ -245,7 +272,9 @@ private void bubbling( String[] mediaSelector, String[] blockSelector, CssFormat
         for( Rule rule : subrules ) {
             final String[] ruleSelector = rule.getSelectors();
             String name = ruleSelector[0];
-            name = SelectorUtils.replacePlaceHolder( formatter, name, this );
+            if( rule.placeHolders != null && rule.placeHolders[0] >= 0 ) {
+                name = SelectorUtils.replacePlaceHolder( formatter, name, rule.placeHolders[0], this );
+            }
             if( name.startsWith( "@media" ) ) {
                 rule.bubbling( new String[]{mediaSelector[0] + " and " + name.substring( 6 ).trim()}, blockSelector, formatter );
             } else {
@@ -261,7 +290,7 @@ private void bubbling( String[] mediaSelector, String[] blockSelector, CssFormat
      * @param formatter current formatter
      */
     private void ruleset( String[] sel, CssFormatter formatter ) {
-        formatter = formatter.startBlock( sel );
+        formatter = formatter.startBlock( sel, this );
         appendPropertiesTo( formatter );
 
         for( Formattable prop : properties ) {
@@ -296,6 +325,25 @@ void appendMixinsTo( String[] parentSelector, CssFormatter formatter ) {
         }
     }
 
+    /**
+     * If the properties contains only declarations and comments. The formatting of such properties has no side effects
+     * like extends, mixin calls or directives.
+     * 
+     * @return true, if only declarations
+     */
+    private boolean hasOnlyDeclarations() {
+        for( Formattable prop : properties ) {
+            switch( prop.getType() ) {
+                case Formattable.PROPERTY:
+                case Formattable.COMMENT:
+                    break;
+                default:
+                    return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * Append the properties of the rule.
      * 
@@ -422,6 +470,45 @@ public HashMap<String, Expression> getVariables() {
         return variables;
     }
 
+    /**
+     * The parameter declarations if this rule is a mixin.
+     * 
+     * @return the parameters or null
+     */
+    @Nullable
+    List<Expression> getParams() {
+        return params;
+    }
+
+    /**
+     * The variable argument of a mixin like "@rest...".
+     * 
+     * @return the variable or null
+     */
+    @Nullable
+    VariableExpression getVarArg() {
+        return varArg;
+    }
+
+    /**
+     * The guard of a mixin or CSS guard.
+     * 
+     * @return the guard or null
+     */
+    @Nullable
+    Expression getGuard() {
+        return guard;
+    }
+
+    /**
+     * All properties, nested rules, mixin calls and other content in the order of the less file.
+     * 
+     * @return the properties
+     */
+    List<Formattable> getProperties() {
+        return properties;
+    }
+
     /**
      * get the subrules if there any.
      * @return the rules or an empty list.
@@ -438,19 +525,38 @@ List<Rule> getSubrules() {
      * @return the mixin or null
      */
     List<Rule> getMixin( String name ) {
-        ArrayList<Rule> rules = null;
+        Map<String, List<Rule>> index = mixinIndex;
+        if( index == null ) {
+            mixinIndex = index = createMixinIndex();
+        }
+        return index.get( name );
+    }
+
+    /**
+     * Create the index of the nested rules by its selectors. It is created on the first lookup after parsing.
+     * 
+     * @return the immutable index
+     */
+    private Map<String, List<Rule>> createMixinIndex() {
+        if( subrules.isEmpty() ) {
+            return Collections.emptyMap();
+        }
+        HashMap<String, List<Rule>> index = new HashMap<>();
         for( Rule rule : subrules ) {
             for( String sel : rule.selectors ) {
-                if( name.equals( sel ) ) {
-                    if( rules == null ) {
-                        rules = new ArrayList<>();
-                    }
-                    rules.add( rule );
-                    break;
+                List<Rule> rules = index.get( sel );
+                if( rules == null ) {
+                    index.put( sel, rules = new ArrayList<>() );
+                } else if( rules.get( rules.size() - 1 ) == rule ) {
+                    continue; // same selector twice in the same rule
                 }
+                rules.add( rule );
             }
         }
-        return rules;
+        for( Map.Entry<String, List<Rule>> entry : index.entrySet() ) {
+            entry.setValue( Collections.unmodifiableList( entry.getValue() ) );
+        }
+        return index;
     }
 
     /**
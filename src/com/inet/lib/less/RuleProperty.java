@@ -41,6 +41,8 @@ class RuleProperty implements Formattable {
     @Nonnull
     private final Expression value;
 
+    private final int        placeHolder;
+
     /**
      * Create a new property.
      * 
@@ -52,6 +54,27 @@ class RuleProperty implements Formattable {
     RuleProperty( @Nonnull String name, @Nonnull Expression value ) {
         this.name = name;
         this.value = value;
+        this.placeHolder = SelectorUtils.placeHolderIndex( name );
+    }
+
+    /**
+     * The name of the property.
+     * 
+     * @return the name
+     */
+    @Nonnull
+    String getName() {
+        return name;
+    }
+
+    /**
+     * The value of the property.
+     * 
+     * @return the value
+     */
+    @Nonnull
+    Expression getValue() {
+        return value;
     }
 
     /**
@@ -68,6 +91,10 @@ public final int getType() {
     @Override
     public void appendTo( CssFormatter formatter ) {
         try {
+            String name = this.name;
+            if( placeHolder >= 0 ) {
+                name = SelectorUtils.replacePlaceHolder( formatter, name, placeHolder, value );
+            }
             formatter.appendProperty( name, value );
         } catch( Exception ex ) {
             throw value.createException( ex );
@@ -27,6 +27,7 @@
 package com.inet.lib.less;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import javax.annotation.Nonnull;
@@ -46,7 +47,7 @@ static String[] merge( @Nonnull String[] mainSelector, @Nonnull String[] base )
         int count = 0;
 
         // counting the & characters and calculate the resulting selectors
-        int[] counts = new int[base.length];
+        int[] andCounts = new int[base.length];
         for( int j = 0; j < base.length; j++ ) {
             String selector = base[j];
             int andCount = 0;
@@ -54,31 +55,48 @@ static String[] merge( @Nonnull String[] mainSelector, @Nonnull String[] base )
             while( (idx = selector.indexOf( '&', idx + 1 )) >= 0 ) {
                 andCount++;
             }
-            count += counts[j] = (int)Math.pow( mainSelector.length, Math.max( 1, andCount ) );
+            andCounts[j] = andCount;
+            count += (int)Math.pow( mainSelector.length, Math.max( 1, andCount ) );
         }
 
         String[] sel = new String[count];
+        StringBuilder builder = null;
         for( int j = 0, t = 0; j < base.length; j++ ) {
             String selector = base[j];
-            int idx = selector.lastIndexOf( '&' );
-            if( idx < 0 ) {
+            int andCount = andCounts[j];
+            if( andCount == 0 ) {
                 for( String mainSel : mainSelector ) {
                     sel[t++] = mainSel.isEmpty() ? selector : mainSel + ' ' + selector;
                 }
             } else {
-                int off = t;
-                count = counts[j];
-                do {
-                    int a = (t - off);
-                    int idx2 = idx;
-                    selector = base[j];
-                    do {
-                        int x = a % mainSelector.length;
-                        selector = selector.substring( 0, idx2 ) + mainSelector[x] + selector.substring( idx2 + 1 );
+                // split the selector once on the & characters and build every combination in a single pass
+                int[] positions = new int[andCount];
+                for( int k = 0, idx = -1; k < andCount; k++ ) {
+                    positions[k] = idx = selector.indexOf( '&', idx + 1 );
+                }
+                int maxLength = 0;
+                for( String mainSel : mainSelector ) {
+                    maxLength = Math.max( maxLength, mainSel.length() );
+                }
+                if( builder == null ) {
+                    builder = new StringBuilder( selector.length() + andCount * maxLength );
+                }
+                int[] indexes = new int[andCount];
+                count = (int)Math.pow( mainSelector.length, andCount );
+                for( int c = 0; c < count; c++ ) {
+                    // the last & iterate the fastest
+                    for( int k = andCount - 1, a = c; k >= 0; k-- ) {
+                        indexes[k] = a % mainSelector.length;
                         a /= mainSelector.length;
-                    } while( (idx2 = selector.lastIndexOf( '&', idx2 - 1 )) >= 0 );
-                    sel[t++] = selector;
-                } while( (t - off) < count );
+                    }
+                    builder.setLength( 0 );
+                    int off = 0;
+                    for( int k = 0; k < andCount; k++ ) {
+                        builder.append( selector, off, positions[k] ).append( mainSelector[indexes[k]] );
+                        off = positions[k] + 1;
+                    }
+                    sel[t++] = builder.append( selector, off, selector.length() ).toString();
+                }
             }
         }
         return sel;
@@ -210,15 +228,60 @@ static void appendToWithPlaceHolder( CssFormatter formatter, String str, int i,
      * @return the result
      */
     static String replacePlaceHolder( CssFormatter formatter, String str, LessObject caller ) {
-        int pos = str.startsWith( "@{" ) ? 0 : str.indexOf( "@", 1 );
+        int pos = placeHolderIndex( str );
         if( pos >= 0 ) {
-            formatter.addOutput();
-            SelectorUtils.appendToWithPlaceHolder( formatter, str, pos, caller );
-            return formatter.releaseOutput();
+            return replacePlaceHolder( formatter, str, pos, caller );
         }
         return str;
     }
 
+    /**
+     * Replace the variable place holders of a string with a known position of the first place holder.
+     * 
+     * @param formatter current formatter
+     * @param str the string
+     * @param pos the position of the first place holder, see {@link #placeHolderIndex(String)}
+     * @param caller for exception handling
+     * @return the string with replaced place holders
+     */
+    static String replacePlaceHolder( CssFormatter formatter, String str, int pos, LessObject caller ) {
+        formatter.addOutput();
+        SelectorUtils.appendToWithPlaceHolder( formatter, str, pos, caller );
+        return formatter.releaseOutput();
+    }
+
+    /**
+     * Get the position from which a string must be scanned for variable place holders. A leading "@" of a directive
+     * is not a place holder.
+     * 
+     * @param str the string
+     * @return the position or -1 if the string has no place holders
+     */
+    static int placeHolderIndex( String str ) {
+        return str.startsWith( "@{" ) ? 0 : str.indexOf( '@', 1 );
+    }
+
+    /**
+     * Get the positions of the first place holders of the selectors.
+     * 
+     * @param selectors the selectors
+     * @return the positions or null if no selector has place holders
+     */
+    static int[] placeHolderIndexes( String[] selectors ) {
+        int[] indexes = null;
+        for( int i = 0; i < selectors.length; i++ ) {
+            int pos = placeHolderIndex( selectors[i] );
+            if( pos >= 0 ) {
+                if( indexes == null ) {
+                    indexes = new int[selectors.length];
+                    Arrays.fill( indexes, -1 );
+                }
+                indexes[i] = pos;
+            }
+        }
+        return indexes;
+    }
+
     /**
      * Split a selectors in single selectors. This is like selectors.split("'") but ignored quoted parts.
      * 
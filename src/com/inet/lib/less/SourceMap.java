@@ -0,0 +1,269 @@
+/**
+ * MIT License (MIT)
+ *
+ * Copyright (c) 2017 Volker Berlin
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * UT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author Volker Berlin
+ * @license: The MIT license <http://opensource.org/licenses/MIT>
+ */
+package com.inet.lib.less;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+/**
+ * A source map in the format version 3 for the CSS result of a compile. Every selector and property of the CSS is
+ * mapped to the position in the less file. The sources are the paths of the less files relative to the main less file.
+ * An instance receives the mapping of a single compile.
+ * 
+ * <pre>
+ * SourceMap sourceMap = new SourceMap( "theme.css" );
+ * Less.compile( lessFile, new CompileOptions().setSourceMap( sourceMap ), writer );
+ * String json = sourceMap.toString();
+ * </pre>
+ */
+public class SourceMap {
+
+    private static final char[]            BASE64   = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray();
+
+    private final String                   file;
+
+    private final ArrayList<String>        sources  = new ArrayList<>();
+
+    private final HashMap<String, Integer> indexes  = new HashMap<>();
+
+    private String                         mainFile = "input";
+
+    private Map<String, String>            names    = Collections.emptyMap();
+
+    private String                         lastFilename;
+
+    private int                            lastIndex = -1;
+
+    /** generated line, generated column, source index, source line, source column */
+    private int[]                          mappings = new int[5 * 64];
+
+    private int                            size;
+
+    /**
+     * Create an empty source map.
+     * 
+     * @param file
+     *            the name of the generated CSS file or null
+     */
+    public SourceMap( @Nullable String file ) {
+        this.file = file;
+    }
+
+    /**
+     * Remove the mapping of a previous compile and set the names of the less files.
+     * 
+     * @param mainFile
+     *            the name of the main less file
+     * @param names
+     *            the paths relative to the main less file for the file names of the imports
+     */
+    void reset( String mainFile, Map<String, String> names ) {
+        this.mainFile = mainFile;
+        this.names = names;
+        sources.clear();
+        indexes.clear();
+        lastFilename = null;
+        lastIndex = -1;
+        size = 0;
+    }
+
+    /**
+     * Get the index of a less file in the sources.
+     * 
+     * @param filename
+     *            the file name of a LessObject, null for the main file
+     * @return the index
+     */
+    int getSourceIndex( @Nullable String filename ) {
+        if( filename == lastFilename && lastIndex >= 0 ) {
+            return lastIndex; // the file names of the same file are the same instance
+        }
+        lastFilename = filename;
+        if( filename == null ) {
+            filename = mainFile;
+        }
+        Integer index = indexes.get( filename );
+        if( index == null ) {
+            index = sources.size();
+            String name = names.get( filename );
+            sources.add( name != null ? name : filename );
+            indexes.put( filename, index );
+        }
+        return lastIndex = index;
+    }
+
+    /**
+     * Add a mapping. The mappings must be added in the order of the generated positions.
+     * 
+     * @param generatedLine
+     *            the zero based line in the CSS
+     * @param generatedColumn
+     *            the zero based column in the CSS
+     * @param source
+     *            the index of the less file
+     * @param line
+     *            the one based line in the less file
+     * @param column
+     *            the zero based column in the less file
+     */
+    void add( int generatedLine, int generatedColumn, int source, int line, int column ) {
+        if( size == mappings.length ) {
+            mappings = Arrays.copyOf( mappings, 2 * size );
+        }
+        int[] data = mappings;
+        data[size++] = generatedLine;
+        data[size++] = generatedColumn;
+        data[size++] = source;
+        data[size++] = Math.max( line - 1, 0 );
+        data[size++] = column;
+    }
+
+    /**
+     * Get the number of mappings.
+     * 
+     * @return the count
+     */
+    int size() {
+        return size / 5;
+    }
+
+    /**
+     * Get the JSON content of the source map.
+     * 
+     * @return the JSON
+     */
+    @Override
+    public String toString() {
+        StringBuilder json = new StringBuilder( 64 + 4 * size );
+        json.append( "{\"version\":3," );
+        if( file != null ) {
+            json.append( "\"file\":" );
+            appendString( json, file );
+            json.append( ',' );
+        }
+        json.append( "\"sources\":[" );
+        for( int i = 0; i < sources.size(); i++ ) {
+            if( i > 0 ) {
+                json.append( ',' );
+            }
+            appendString( json, sources.get( i ) );
+        }
+        json.append( "],\"names\":[],\"mappings\":\"" );
+        int[] data = mappings;
+        char[] chars = new char[64];
+        int count = 0;
+        int generatedLine = 0;
+        int generatedColumn = 0;
+        int source = 0;
+        int line = 0;
+        int column = 0;
+        for( int i = 0; i < size; i += 5 ) {
+            if( chars.length - count < 32 ) {
+                json.append( chars, 0, count );
+                count = 0;
+            }
+            if( data[i] != generatedLine ) {
+                json.append( chars, 0, count );
+                count = 0;
+                do {
+                    json.append( ';' );
+                } while( ++generatedLine < data[i] );
+                generatedColumn = 0;
+            } else if( i > 0 ) {
+                chars[count++] = ',';
+            }
+            count = encodeVLQ( chars, count, data[i + 1] - generatedColumn );
+            count = encodeVLQ( chars, count, data[i + 2] - source );
+            count = encodeVLQ( chars, count, data[i + 3] - line );
+            count = encodeVLQ( chars, count, data[i + 4] - column );
+            generatedColumn = data[i + 1];
+            source = data[i + 2];
+            line = data[i + 3];
+            column = data[i + 4];
+        }
+        json.append( chars, 0, count );
+        json.append( "\"}" );
+        return json.toString();
+    }
+
+    /**
+     * Encode a value as Base64 VLQ. A value needs at most 7 characters.
+     * 
+     * @param chars
+     *            the target
+     * @param count
+     *            the current count of characters in the target
+     * @param value
+     *            the value
+     * @return the new count of characters
+     */
+    private static int encodeVLQ( char[] chars, int count, int value ) {
+        int vlq = value < 0 ? ((-value) << 1) | 1 : value << 1;
+        do {
+            int digit = vlq & 0x1F;
+            vlq >>>= 5;
+            if( vlq != 0 ) {
+                digit |= 0x20;
+            }
+            chars[count++] = BASE64[digit];
+        } while( vlq != 0 );
+        return count;
+    }
+
+    /**
+     * Append a JSON string.
+     * 
+     * @param json
+     *            the target
+     * @param str
+     *            the string value
+     */
+    private static void appendString( StringBuilder json, String str ) {
+        json.append( '"' );
+        for( int i = 0; i < str.length(); i++ ) {
+            char ch = str.charAt( i );
+            switch( ch ) {
+                case '"':
+                case '\\':
+                    json.append( '\\' ).append( ch );
+                    break;
+                default:
+                    if( ch < 0x20 ) {
+                        json.append( String.format( "\\u%04x", (int)ch ) );
+                    } else {
+                        json.append( ch );
+                    }
+            }
+        }
+        json.append( '"' );
+    }
+}
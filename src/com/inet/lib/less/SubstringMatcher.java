@@ -0,0 +1,175 @@
+/**
+ * MIT License (MIT)
+ *
+ * Copyright (c) 2017 Volker Berlin
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * UT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author Volker Berlin
+ * @license: The MIT license <http://opensource.org/licenses/MIT>
+ */
+package com.inet.lib.less;
+
+import java.util.Arrays;
+
+/**
+ * An Aho-Corasick automaton that finds out with a single pass over a string if it contains any of the patterns.
+ */
+class SubstringMatcher {
+
+    private char[][]  chars    = new char[16][];
+
+    private int[][]   targets  = new int[16][];
+
+    private int[]     counts   = new int[16];
+
+    private int[]     failures = new int[16];
+
+    private boolean[] matches  = new boolean[16];
+
+    private int       size     = 1;
+
+    private boolean   compiled = true;
+
+    /**
+     * Add a pattern.
+     * 
+     * @param pattern
+     *            the searched substring
+     */
+    void add( String pattern ) {
+        int state = 0;
+        for( int i = 0; i < pattern.length(); i++ ) {
+            char ch = pattern.charAt( i );
+            int next = next( state, ch );
+            if( next < 0 ) {
+                next = newState();
+                int count = counts[state];
+                if( chars[state] == null ) {
+                    chars[state] = new char[2];
+                    targets[state] = new int[2];
+                } else if( count == chars[state].length ) {
+                    chars[state] = Arrays.copyOf( chars[state], count * 2 );
+                    targets[state] = Arrays.copyOf( targets[state], count * 2 );
+                }
+                chars[state][count] = ch;
+                targets[state][count] = next;
+                counts[state] = count + 1;
+            }
+            state = next;
+        }
+        matches[state] = true;
+        compiled = false;
+    }
+
+    /**
+     * If the string contains any of the patterns.
+     * 
+     * @param str
+     *            the string
+     * @return true, if at least one pattern is a substring
+     */
+    boolean containsAny( String str ) {
+        if( !compiled ) {
+            compile();
+        }
+        if( matches[0] ) {
+            return true;
+        }
+        int state = 0;
+        for( int i = 0; i < str.length(); i++ ) {
+            char ch = str.charAt( i );
+            int next;
+            while( (next = next( state, ch )) < 0 && state != 0 ) {
+                state = failures[state];
+            }
+            state = next < 0 ? 0 : next;
+            if( matches[state] ) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Get the following state for a character.
+     * 
+     * @param state
+     *            the current state
+     * @param ch
+     *            the character
+     * @return the following state or -1
+     */
+    private int next( int state, char ch ) {
+        char[] stateChars = chars[state];
+        for( int i = counts[state] - 1; i >= 0; i-- ) {
+            if( stateChars[i] == ch ) {
+                return targets[state][i];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Create a new state without transitions.
+     * 
+     * @return the index of the state
+     */
+    private int newState() {
+        if( size == counts.length ) {
+            int length = size * 2;
+            chars = Arrays.copyOf( chars, length );
+            targets = Arrays.copyOf( targets, length );
+            counts = Arrays.copyOf( counts, length );
+            failures = Arrays.copyOf( failures, length );
+            matches = Arrays.copyOf( matches, length );
+        }
+        return size++;
+    }
+
+    /**
+     * Calculate the failure transitions with a breadth first search over the trie of the patterns.
+     */
+    private void compile() {
+        int[] queue = new int[size];
+        int head = 0;
+        int tail = 0;
+        for( int i = 0; i < counts[0]; i++ ) {
+            int child = targets[0][i];
+            failures[child] = 0;
+            queue[tail++] = child;
+        }
+        while( head < tail ) {
+            int state = queue[head++];
+            for( int i = 0; i < counts[state]; i++ ) {
+                char ch = chars[state][i];
+                int child = targets[state][i];
+                int failure = failures[state];
+                int next;
+                while( (next = next( failure, ch )) < 0 && failure != 0 ) {
+                    failure = failures[failure];
+                }
+                failures[child] = next < 0 ? 0 : next;
+                matches[child] |= matches[failures[child]];
+                queue[tail++] = child;
+            }
+        }
+        compiled = true;
+    }
+}
@@ -63,6 +63,23 @@ class ValueExpression extends Expression {
         this.unit = "";
     }
 
+    /**
+     * Create a new instance with an already known type. Used to load a precompiled parse tree.
+     * @param obj another LessObject with parse position.
+     * @param value the value
+     * @param type the value type, can be UNKNOWN
+     * @param doubleValue the numeric value for a known type
+     * @param unit the unit for a known type
+     * @param op the operation for the type LIST
+     */
+    ValueExpression( LessObject obj, String value, int type, double doubleValue, String unit, Operation op ) {
+        super( obj, value );
+        this.type = type;
+        this.value = doubleValue;
+        this.unit = unit;
+        this.op = op;
+    }
+
     /**
      * Create a new value expression from a JavaScriptExpression.
      * @param expr another LessObject with parse position.
@@ -183,6 +200,38 @@ public Operation listValue( CssFormatter formatter ) {
         return super.listValue( formatter );
     }
 
+    /**
+     * Get the data type without evaluating it.
+     * @return the type or UNKNOWN
+     */
+    int getKnownDataType() {
+        return type;
+    }
+
+    /**
+     * Get the numeric value without evaluating it.
+     * @return the value, only valid if the type is known
+     */
+    double getKnownValue() {
+        return value;
+    }
+
+    /**
+     * Get the unit without evaluating it.
+     * @return the unit or null
+     */
+    String getKnownUnit() {
+        return unit;
+    }
+
+    /**
+     * Get the list value without evaluating it.
+     * @return the list or null
+     */
+    Operation getKnownList() {
+        return op;
+    }
+
     /**
      * Evaluate the type and value.
      * @param formatter current formatter
@@ -31,6 +31,10 @@
  */
 class VariableExpression extends Expression {
 
+    private Object     stackStamp;
+
+    private Expression value;
+
     /**
      * Create a new instance.
      * @param obj another LessObject with parse position.
@@ -81,14 +85,20 @@ public String unit( CssFormatter formatter ) {
     }
 
     /**
-     * Get the referencing expression
+     * Get the referencing expression. The result is cached until the variable stack of the formatter changes.
      * @param formatter current formatter with all variables
      * @return the Expression
      */
     Expression getValue( CssFormatter formatter ) {
+        Object stamp = formatter.stackStamp();
+        if( stackStamp == stamp ) {
+            return this.value;
+        }
         String name = toString();
         Expression value = formatter.getVariable( name );
         if( value != null ) {
+            this.value = value;
+            stackStamp = stamp;
             return value;
         }
         if( name.startsWith( "@@" ) ) {
@@ -0,0 +1,69 @@
+package com.inet.lib.less;
+
+import java.io.File;
+
+import org.junit.Test;
+
+import static com.inet.lib.less.TestFiles.*;
+import static org.junit.Assert.*;
+
+public class CachedReaderFactoryTest {
+
+    @Test
+    public void changedFile() throws Exception {
+        File dir = createTempDirectory();
+        try {
+            File lessFile = new File( dir, "main.less" );
+            File lib = new File( dir, "lib.less" );
+            write( lessFile, "@import \"lib.less\"; .a { color: @color; }" );
+            write( lib, "@color: #f00;" );
+            CountingReaderFactory counter = new CountingReaderFactory();
+            CachedReaderFactory factory = new CachedReaderFactory( counter );
+
+            assertEquals( ".a{color:#f00}", Less.compile( lessFile, true, factory ) );
+            assertEquals( ".a{color:#f00}", Less.compile( lessFile, true, factory ) );
+            assertEquals( 1, counter.count() );
+
+            // same size, only the content and the time stamp change
+            write( lib, "@color: #0f0;" );
+            assertTrue( lib.setLastModified( lib.lastModified() + 10000 ) );
+            assertEquals( ".a{color:#0f0}", Less.compile( lessFile, true, factory ) );
+            assertEquals( 2, counter.count() );
+            assertEquals( ".a{color:#0f0}", Less.compile( lessFile, true, factory ) );
+            assertEquals( 2, counter.count() );
+
+            factory.clear();
+            assertEquals( ".a{color:#0f0}", Less.compile( lessFile, true, factory ) );
+            assertEquals( 3, counter.count() );
+        } finally {
+            delete( dir );
+        }
+    }
+
+    @Test
+    public void maxSize() throws Exception {
+        File dir = createTempDirectory();
+        try {
+            File lessFile = new File( dir, "main.less" );
+            write( lessFile, "@import \"a.less\"; @import \"b.less\"; .a { color: @a; background: @b; }" );
+            write( new File( dir, "a.less" ), "@a: red;" );
+            write( new File( dir, "b.less" ), "@b: blue;" );
+            CountingReaderFactory counter = new CountingReaderFactory();
+
+            // both files fit in the cache
+            CachedReaderFactory factory = new CachedReaderFactory( counter, 100 );
+            Less.compile( lessFile, true, factory );
+            Less.compile( lessFile, true, factory );
+            assertEquals( 2, counter.count() );
+
+            // only one file fit in the cache, the least recently used file is removed
+            counter.reset();
+            factory = new CachedReaderFactory( counter, 10 );
+            assertEquals( ".a{color:#f00;background:#00f}", Less.compile( lessFile, true, factory ) );
+            assertEquals( ".a{color:#f00;background:#00f}", Less.compile( lessFile, true, factory ) );
+            assertEquals( 4, counter.count() );
+        } finally {
+            delete( dir );
+        }
+    }
+}
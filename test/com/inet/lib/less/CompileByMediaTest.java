@@ -0,0 +1,54 @@
+package com.inet.lib.less;
+
+import java.io.File;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CompileByMediaTest {
+
+    private static final String LESS = "@charset \"UTF-8\"; .a { color: red; } @media print { .a { color: black; } } .b { @media (min-width: 10px) { margin: 0; } } @media print { .c { display: none; } }";
+
+    @Test
+    public void normal() {
+        Map<String, String> styleSheets = Less.compileByMedia( null, LESS, new CompileOptions() );
+        assertEquals( Arrays.asList( "", "print", "(min-width: 10px)" ), new ArrayList<>( styleSheets.keySet() ) );
+        assertEquals( "@charset \"UTF-8\";\n.a {\n  color: red;\n}\n", styleSheets.get( "" ) );
+        assertEquals( "@media print {\n  .a {\n    color: black;\n  }\n}\n@media print {\n  .c {\n    display: none;\n  }\n}\n", styleSheets.get( "print" ) );
+        assertEquals( "@media (min-width: 10px) {\n  .b {\n    margin: 0;\n  }\n}\n", styleSheets.get( "(min-width: 10px)" ) );
+    }
+
+    @Test
+    public void compress() {
+        Map<String, String> styleSheets = Less.compileByMedia( null, LESS, new CompileOptions().setCompress( true ) );
+        assertEquals( "@charset \"UTF-8\";.a{color:#f00}", styleSheets.get( "" ) );
+        assertEquals( "@media print{.a{color:#000}}@media print{.c{display:none}}", styleSheets.get( "print" ) );
+        assertEquals( "@media (min-width: 10px){.b{margin:0}}", styleSheets.get( "(min-width: 10px)" ) );
+    }
+
+    @Test
+    public void withoutMedia() {
+        Map<String, String> styleSheets = Less.compileByMedia( null, "", new CompileOptions().setCompress( true ) );
+        assertEquals( 1, styleSheets.size() );
+        assertEquals( "", styleSheets.get( "" ) );
+    }
+
+    @Test
+    public void bootstrap() throws Exception {
+        URL url = LessTest.class.getResource( "samples/bootstrap/bootstrap-3.3.1.less" );
+        File lessFile = new File( url.toURI() );
+        Map<String, String> styleSheets = Less.compileByMedia( lessFile, new CompileOptions().setCompress( true ) );
+        assertTrue( styleSheets.containsKey( "print" ) );
+        assertTrue( styleSheets.containsKey( "(min-width: 768px)" ) );
+        int length = 0;
+        for( String css : styleSheets.values() ) {
+            length += css.length();
+        }
+        assertEquals( Less.compile( lessFile, true ).length(), length );
+    }
+}
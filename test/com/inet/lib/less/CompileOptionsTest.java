@@ -0,0 +1,77 @@
+package com.inet.lib.less;
+
+import java.io.File;
+import java.io.StringWriter;
+import java.net.URL;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CompileOptionsTest {
+
+    private static final String LESS = ".a { color: red; margin: 0; color: blue; } .b { margin: 0; color: blue; } @media print { .c { display: none; } } @media print { .d { display: none; } }";
+
+    private static String compile( CompileOptions options ) throws Exception {
+        StringBuilder css = new StringBuilder();
+        Less.compile( null, LESS, options, css );
+        return css.toString();
+    }
+
+    @Test
+    public void defaults() throws Exception {
+        CompileOptions options = new CompileOptions();
+        assertFalse( options.isCompress() );
+        assertFalse( options.isOptimize() );
+        assertNull( options.getSourceMap() );
+        assertNull( options.getPrecompiledFile() );
+        assertNull( options.getImportCache() );
+        assertNotNull( options.getReaderFactory() );
+        assertEquals( Less.compile( null, LESS, false ), compile( options ) );
+        assertEquals( Less.compile( null, LESS, true ), compile( options.setCompress( true ) ) );
+    }
+
+    @Test
+    public void optimizeWithSourceMap() throws Exception {
+        String optimized = compile( new CompileOptions().setCompress( true ).setOptimize( true ) );
+        assertEquals( ".a,.b{margin:0;color:#00f}@media print{.c,.d{display:none}}", optimized );
+
+        SourceMap sourceMap = new SourceMap( "a.css" );
+        assertEquals( optimized, compile( new CompileOptions().setCompress( true ).setOptimize( true ).setSourceMap( sourceMap ) ) );
+        assertTrue( sourceMap.toString(), sourceMap.toString().contains( "\"sources\":[\"input\"]" ) );
+    }
+
+    @Test
+    public void streaming() throws Exception {
+        CompileOptions options = new CompileOptions().setCompress( true ).setOptimize( true );
+        StringWriter writer = new StringWriter();
+        Less.compile( null, LESS, options, writer );
+        assertEquals( compile( options ), writer.toString() );
+
+        // a source map is created with a complete formatting before writing
+        SourceMap sourceMap = new SourceMap( "a.css" );
+        SourceMap streamedMap = new SourceMap( "a.css" );
+        writer = new StringWriter();
+        Less.compile( null, LESS, options.setSourceMap( streamedMap ), writer );
+        assertEquals( compile( options.setSourceMap( sourceMap ) ), writer.toString() );
+        assertEquals( sourceMap.toString(), streamedMap.toString() );
+    }
+
+    @Test
+    public void precompiledFile() throws Exception {
+        URL url = LessTest.class.getResource( "samples/bootstrap/bootstrap-3.3.1.less" );
+        File lessFile = new File( url.toURI() );
+        File precompiledFile = File.createTempFile( "jlessc", ".lessc" );
+        try {
+            Less.precompile( lessFile, precompiledFile, new ReaderFactory() );
+            CompileOptions options = new CompileOptions().setCompress( true ).setOptimize( true );
+            StringBuilder expected = new StringBuilder();
+            Less.compile( lessFile, options, expected );
+            StringWriter writer = new StringWriter();
+            Less.compile( lessFile, options.setPrecompiledFile( precompiledFile ), writer );
+            assertEquals( expected.toString(), writer.toString() );
+        } finally {
+            precompiledFile.delete();
+        }
+    }
+}
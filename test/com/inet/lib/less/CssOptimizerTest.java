@@ -0,0 +1,74 @@
+package com.inet.lib.less;
+
+import java.io.IOException;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CssOptimizerTest {
+
+    private static String compile( String less, boolean compress ) {
+        StringBuilder css = new StringBuilder();
+        try {
+            Less.compile( null, less, new CompileOptions().setCompress( compress ).setOptimize( true ), css );
+        } catch( IOException ex ) {
+            throw new AssertionError( ex );
+        }
+        return css.toString();
+    }
+
+    private void assertOptimized( String less, String expectedCss ) {
+        assertEquals( expectedCss, compile( less, true ) );
+    }
+
+    @Test
+    public void overridden() {
+        assertOptimized( ".a { color: red; margin: 0; color: blue; }", ".a{margin:0;color:#00f}" );
+    }
+
+    @Test
+    public void overriddenImportant() {
+        assertOptimized( ".a { color: red !important; color: blue; }", ".a{color:#f00 !important}" );
+        assertOptimized( ".a { color: red !important; color: blue !important; }", ".a{color:#00f !important}" );
+    }
+
+    @Test
+    public void fallbackValues() {
+        assertOptimized( ".a { width: 10px; width: ~'calc(100% - 10px)'; }", ".a{width:10px;width:calc(100% - 10px)}" );
+        assertOptimized( ".a { font-size: 12px; font-size: 1rem; }", ".a{font-size:12px;font-size:1rem}" );
+        assertOptimized( ".a { display: block; display: flex; }", ".a{display:block;display:flex}" );
+    }
+
+    @Test
+    public void mergeIdenticalRules() {
+        assertOptimized( ".a { color: red; } .b { margin: 0; } .c { color: red; }", ".a,.c{color:#f00}.b{margin:0}" );
+    }
+
+    @Test
+    public void mergeKeepCascade() {
+        assertOptimized( ".a { color: red; } .b { color: blue; } .c { color: red; }", ".a{color:#f00}.b{color:#00f}.c{color:#f00}" );
+        assertOptimized( ".a { margin-top: 0; } .b { margin: 1px; } .c { margin-top: 0; }", ".a{margin-top:0}.b{margin:1px}.c{margin-top:0}" );
+        assertOptimized( ".a { line-height: 1; } .b { font: 12px Arial; } .c { line-height: 1; }", ".a{line-height:1}.b{font:12px Arial}.c{line-height:1}" );
+        assertOptimized( ".a { box-sizing: border-box; } .b { -moz-box-sizing: content-box; } .c { box-sizing: border-box; }", ".a{box-sizing:border-box}.b{-moz-box-sizing:content-box}.c{box-sizing:border-box}" );
+    }
+
+    @Test
+    public void mergeUnsafeSelectors() {
+        assertOptimized( ".a { color: red; } .b { margin: 0; } .c::selection { color: red; }", ".a{color:#f00}.b{margin:0}.c::selection{color:#f00}" );
+        assertOptimized( ".a { color: red; } .b { margin: 0; } .c:not(.d) { color: red; }", ".a{color:#f00}.b{margin:0}.c:not(.d){color:#f00}" );
+        assertOptimized( ".a { color: red; } .b { margin: 0; } .c:hover { color: red; }", ".a,.c:hover{color:#f00}.b{margin:0}" );
+    }
+
+    @Test
+    public void mergeMedia() {
+        assertOptimized( "@media print { .a { color: red; } } .b { margin: 0; } @media print { .c { padding: 0; } }", "@media print{.a{color:#f00}.c{padding:0}}.b{margin:0}" );
+        assertOptimized( "@media print { .a { margin: 1px; } } .b { margin: 0; } @media print { .c { margin: 2px; } }", "@media print{.a{margin:1px}}.b{margin:0}@media print{.c{margin:2px}}" );
+    }
+
+    @Test
+    public void withoutOptimize() {
+        assertEquals( ".a{color:#f00}.b{margin:0}.c{color:#f00}", Less.compile( null, ".a { color: red; } .b { margin: 0; } .c { color: red; }", true ) );
+        assertEquals( ".a {\n  color: red;\n}\n.b {\n  color: red;\n}\n", compile( ".a { color: red; } .b { color: red; }", false ) );
+    }
+}
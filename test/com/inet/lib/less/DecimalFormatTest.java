@@ -0,0 +1,85 @@
+package com.inet.lib.less;
+
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.util.Locale;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class DecimalFormatTest {
+
+    private static final double MAX_FAST_DECIMAL = (1L << 52) / 1e8;
+
+    private static String format( CssFormatter formatter, double value ) {
+        formatter.addOutput();
+        formatter.append( value );
+        return formatter.releaseOutput();
+    }
+
+    private static void assertFormat( double value ) {
+        DecimalFormat format = new DecimalFormat( "#.########", DecimalFormatSymbols.getInstance( Locale.ENGLISH ) );
+        assertEquals( String.valueOf( value ), format.format( value ), format( new CssFormatter(), value ) );
+        format.setMinimumIntegerDigits( 0 );
+        assertEquals( String.valueOf( value ), format.format( value ), format( new CompressCssFormatter(), value ) );
+    }
+
+    @Test
+    public void simple() {
+        assertFormat( 0.5 );
+        assertFormat( 1.25 );
+        assertFormat( 123.456 );
+        assertFormat( 0.00000001 );
+        assertFormat( 0.000000001 );
+        assertFormat( 0.05 );
+        assertEquals( ".05", format( new CompressCssFormatter(), 0.05 ) );
+        assertEquals( "0.05", format( new CssFormatter(), 0.05 ) );
+    }
+
+    @Test
+    public void negative() {
+        assertFormat( -0.5 );
+        assertFormat( -1.25 );
+        assertFormat( -0.000000005 );
+        assertFormat( -0.000000015 );
+        assertEquals( "-.5", format( new CompressCssFormatter(), -0.5 ) );
+    }
+
+    @Test
+    public void roundingTie() {
+        assertFormat( 1.0 / 512 );
+        assertFormat( 3.0 / 1024 );
+        for( int k = 0; k < 100000; k++ ) {
+            assertFormat( k / 1e8 + 5e-9 );
+            assertFormat( 1 + k / 1e8 + 5e-9 );
+            assertFormat( 12345 + k / 1e8 + 5e-9 );
+        }
+    }
+
+    @Test
+    public void largeValues() {
+        assertFormat( MAX_FAST_DECIMAL + 0.5 );
+        assertFormat( Math.nextUp( MAX_FAST_DECIMAL ) );
+        assertFormat( Math.nextAfter( MAX_FAST_DECIMAL, 0 ) );
+        assertFormat( -Math.nextAfter( MAX_FAST_DECIMAL, 0 ) );
+        assertFormat( 1e20 + 0.5 );
+    }
+
+    @Test
+    public void special() {
+        assertFormat( Double.NaN );
+        assertFormat( Double.POSITIVE_INFINITY );
+        assertFormat( Double.NEGATIVE_INFINITY );
+    }
+
+    @Test
+    public void random() {
+        Random random = new Random( 42 );
+        for( int i = 0; i < 100000; i++ ) {
+            double value = random.nextDouble() * Math.pow( 10, random.nextInt( 16 ) - 8 );
+            assertFormat( random.nextBoolean() ? value : -value );
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.inet.lib.less;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class HashMultimapTest {
+
+    @Test
+    public void parentValues() {
+        HashMultimap<String, String> parent = new HashMultimap<>();
+        parent.add( "a", "p1" );
+        parent.add( "b", "p2" );
+        HashMultimap<String, String> map = new HashMultimap<>( parent );
+        map.add( "a", "c1" );
+        map.add( "c", "c2" );
+        assertEquals( Arrays.asList( "c1", "p1" ), map.get( "a" ) );
+        assertEquals( Arrays.asList( "p2" ), map.get( "b" ) );
+        assertEquals( Arrays.asList( "c2" ), map.get( "c" ) );
+        assertNull( map.get( "d" ) );
+    }
+
+    @Test
+    public void laterAdds() {
+        HashMultimap<String, String> parent = new HashMultimap<>();
+        parent.add( "a", "p1" );
+        HashMultimap<String, String> map = new HashMultimap<>( parent );
+        map.add( "a", "c1" );
+        map.get( "a" );
+        map.add( "a", "c2" );
+        parent.add( "a", "p2" );
+        assertEquals( Arrays.asList( "c1", "c2", "p1", "p2" ), map.get( "a" ) );
+    }
+
+    @Test
+    public void repeatedLookupsStayFlat() {
+        HashMultimap<String, String> root = new HashMultimap<>();
+        root.add( "a", "r" );
+        HashMultimap<String, String> map = root;
+        for( int i = 0; i < 100; i++ ) { // like nested @media blocks
+            map = new HashMultimap<>( map );
+            map.add( "a", "m" + i );
+        }
+        for( int i = 0; i < 10000; i++ ) {
+            assertEquals( 101, map.get( "a" ).size() );
+        }
+        List<String> own = map.entrySet().iterator().next().getValue();
+        assertEquals( Arrays.asList( "m99" ), own );
+        assertEquals( Arrays.asList( "r" ), root.get( "a" ) );
+    }
+}
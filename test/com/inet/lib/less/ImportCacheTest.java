@@ -0,0 +1,162 @@
+package com.inet.lib.less;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import static com.inet.lib.less.TestFiles.*;
+import static org.junit.Assert.*;
+
+public class ImportCacheTest {
+
+    private static String compile( File lessFile, ImportCache cache, ReaderFactory readerFactory ) throws Exception {
+        StringBuilder css = new StringBuilder();
+        Less.compile( lessFile, new CompileOptions().setCompress( true ).setImportCache( cache ).setReaderFactory( readerFactory ), css );
+        return css.toString();
+    }
+
+    @Test
+    public void changedFile() throws Exception {
+        File dir = createTempDirectory();
+        try {
+            File lessFile = new File( dir, "main.less" );
+            File lib = new File( dir, "lib.less" );
+            write( lessFile, "@import \"lib.less\"; .a { color: @color; .m(); }" );
+            write( lib, "@color: #f00; .m() { margin: 0; }" );
+            CountingReaderFactory counter = new CountingReaderFactory();
+            ImportCache cache = new ImportCache();
+
+            assertEquals( ".a{color:#f00;margin:0}", compile( lessFile, cache, counter ) );
+            assertEquals( ".a{color:#f00;margin:0}", compile( lessFile, cache, counter ) );
+            assertEquals( 1, counter.count( "lib.less" ) );
+
+            // same size, only the content and the time stamp change
+            write( lib, "@color: #0f0; .m() { border: 0; }" );
+            assertTrue( lib.setLastModified( lib.lastModified() + 10000 ) );
+            assertEquals( ".a{color:#0f0;border:0}", compile( lessFile, cache, counter ) );
+            assertEquals( ".a{color:#0f0;border:0}", compile( lessFile, cache, counter ) );
+            assertEquals( 2, counter.count( "lib.less" ) );
+
+            cache.clear();
+            assertEquals( ".a{color:#0f0;border:0}", compile( lessFile, cache, counter ) );
+            assertEquals( 3, counter.count( "lib.less" ) );
+        } finally {
+            delete( dir );
+        }
+    }
+
+    @Test
+    public void sharedBetweenFiles() throws Exception {
+        File dir = createTempDirectory();
+        try {
+            File red = new File( dir, "red.less" );
+            File blue = new File( dir, "blue.less" );
+            write( red, "@import \"lib.less\"; @color: red;" );
+            write( blue, "@import (reference) \"lib.less\"; @color: blue; .x { .m(); }" );
+            write( new File( dir, "lib.less" ), "@import \"nested.less\"; .m() { color: @color; } .a { .m(); background: @color; }" );
+            write( new File( dir, "nested.less" ), ".n { width: (1px + 2); }" );
+            CountingReaderFactory counter = new CountingReaderFactory();
+            ImportCache cache = new ImportCache();
+
+            // the evaluated values of one compile are not visible in another compile
+            for( int i = 0; i < 3; i++ ) {
+                assertEquals( Less.compile( red, true ), compile( red, cache, counter ) );
+                assertEquals( Less.compile( blue, true ), compile( blue, cache, counter ) );
+            }
+            // once for the normal and once for the reference import
+            assertEquals( 2, counter.count( "lib.less" ) );
+            assertEquals( 2, counter.count( "nested.less" ) );
+        } finally {
+            delete( dir );
+        }
+    }
+
+    @Test
+    public void changedImports() throws Exception {
+        File dir = createTempDirectory();
+        try {
+            File first = new File( dir, "first.less" );
+            File second = new File( dir, "second.less" );
+            write( first, "@import \"lib.less\";" );
+            write( second, "@import \"colors.less\"; @import \"lib.less\";" );
+            write( new File( dir, "lib.less" ), ".a { @import \"colors.less\"; }" );
+            write( new File( dir, "colors.less" ), ".b { color: red; }" );
+            ImportCache cache = new ImportCache();
+
+            // the cached lib.less has imported colors.less, in the second file it was already imported before
+            assertEquals( Less.compile( first, true ), compile( first, cache, new ReaderFactory() ) );
+            assertEquals( Less.compile( second, true ), compile( second, cache, new ReaderFactory() ) );
+            assertEquals( Less.compile( first, true ), compile( first, cache, new ReaderFactory() ) );
+        } finally {
+            delete( dir );
+        }
+    }
+
+    @Test
+    public void lazyImport() throws Exception {
+        File dir = createTempDirectory();
+        try {
+            File lessFile = new File( dir, "main.less" );
+            write( lessFile, "@import \"lib.less\"; @import \"@{name}.less\"; @name: lazy; .a { color: @color; }" );
+            write( new File( dir, "lib.less" ), "@color: red;" );
+            write( new File( dir, "lazy.less" ), "@color: blue;" );
+            CountingReaderFactory counter = new CountingReaderFactory();
+            ImportCache cache = new ImportCache();
+
+            // the segments of a compile with lazy imports are not cached
+            assertEquals( ".a{color:#00f}", compile( lessFile, cache, counter ) );
+            assertEquals( ".a{color:#00f}", compile( lessFile, cache, counter ) );
+            assertEquals( 2, counter.count( "lib.less" ) );
+        } finally {
+            delete( dir );
+        }
+    }
+
+    @Test
+    public void maxSize() throws Exception {
+        File dir = createTempDirectory();
+        try {
+            File lessFile = new File( dir, "main.less" );
+            write( lessFile, "@import \"lib.less\"; .a { color: @color; }" );
+            write( new File( dir, "lib.less" ), "@color: red;" );
+            CountingReaderFactory counter = new CountingReaderFactory();
+            ImportCache cache = new ImportCache( 1 );
+
+            assertEquals( ".a{color:#f00}", compile( lessFile, cache, counter ) );
+            assertEquals( ".a{color:#f00}", compile( lessFile, cache, counter ) );
+            assertEquals( 2, counter.count( "lib.less" ) );
+        } finally {
+            delete( dir );
+        }
+    }
+
+    @Test
+    public void concurrent() throws Exception {
+        final File lessFile = new File( getClass().getResource( "samples/bootstrap/bootstrap-3.3.1.less" ).toURI() );
+        final String expected = Less.compile( lessFile, true );
+        final ImportCache cache = new ImportCache();
+        ExecutorService executor = Executors.newFixedThreadPool( 4 );
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for( int i = 0; i < 12; i++ ) {
+                results.add( executor.submit( new Callable<String>() {
+                    @Override
+                    public String call() throws Exception {
+                        return compile( lessFile, cache, new ReaderFactory() );
+                    }
+                } ) );
+            }
+            for( Future<String> result : results ) {
+                assertEquals( expected, result.get() );
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
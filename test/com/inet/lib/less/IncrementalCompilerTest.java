@@ -0,0 +1,198 @@
+package com.inet.lib.less;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import org.junit.Test;
+
+import static com.inet.lib.less.TestFiles.*;
+import static org.junit.Assert.*;
+
+public class IncrementalCompilerTest {
+
+    /**
+     * A ReaderFactory with the content of the files in memory that records the reads. The files on disk are empty
+     * and never modified, that changes are only visible with IncrementalCompiler.changed(URL).
+     */
+    private static class MemoryReaderFactory extends ReaderFactory {
+        private final HashMap<String, String> files = new HashMap<>();
+
+        private final List<String>            reads = new ArrayList<>();
+
+        @Override
+        public Reader create( URL url ) throws IOException {
+            String name = new File( url.getPath() ).getName();
+            String content = files.get( name );
+            if( content == null ) {
+                throw new IOException( "File not found: " + url );
+            }
+            reads.add( name );
+            return new StringReader( content );
+        }
+    }
+
+    private final MemoryReaderFactory factory  = new MemoryReaderFactory();
+
+    private final File                dir      = createTempDirectory();
+
+    private final IncrementalCompiler compiler = new IncrementalCompiler( url( "main.less" ), factory );
+
+    private URL url( String name ) {
+        try {
+            return new File( dir, name ).toURI().toURL();
+        } catch( IOException ex ) {
+            throw new RuntimeException( ex );
+        }
+    }
+
+    private void put( String name, String content ) {
+        try {
+            new File( dir, name ).createNewFile();
+        } catch( IOException ex ) {
+            throw new RuntimeException( ex );
+        }
+        factory.files.put( name, content );
+    }
+
+    private void change( String name, String content ) {
+        put( name, content );
+        compiler.changed( url( name ) );
+    }
+
+    /**
+     * Compile incremental and compare it with a complete compile.
+     * 
+     * @return the names of the files that was read from the incremental compile
+     */
+    private List<String> assertCompile() {
+        factory.reads.clear();
+        String css = compiler.compile( true );
+        List<String> reads = new ArrayList<>( factory.reads );
+        assertEquals( Less.compile( url( "main.less" ), factory.files.get( "main.less" ), true, factory ), css );
+        return reads;
+    }
+
+    private void createFiles() {
+        put( "main.less", "@import \"vars.less\"; @import \"mixins.less\"; @import \"a.less\"; @import \"b.less\"; .main { color: @color; .m(); }" );
+        put( "vars.less", "@color: red;" );
+        put( "mixins.less", ".m() { margin: 0; }" );
+        put( "a.less", ".a { color: @color; .m(); }" );
+        put( "b.less", "@import \"c.less\"; .b { width: @width; }" );
+        put( "c.less", "@width: 10px; .c { color: blue; }" );
+        assertEquals( 6, assertCompile().size() );
+    }
+
+    @Test
+    public void unchanged() {
+        try {
+            createFiles();
+            assertEquals( "[]", assertCompile().toString() );
+        } finally {
+            delete( dir );
+        }
+    }
+
+    @Test
+    public void changeVariable() {
+        try {
+            createFiles();
+            change( "vars.less", "@color: green;" );
+            assertEquals( "[vars.less]", assertCompile().toString() );
+            assertTrue( compiler.compile( true ).contains( "#008000" ) );
+        } finally {
+            delete( dir );
+        }
+    }
+
+    @Test
+    public void redefineMixin() {
+        try {
+            createFiles();
+            change( "mixins.less", ".m() { padding: 1px; }" );
+            assertEquals( "[mixins.less]", assertCompile().toString() );
+            assertTrue( compiler.compile( true ).contains( "padding:1px" ) );
+            assertFalse( compiler.compile( true ).contains( "margin:0" ) );
+        } finally {
+            delete( dir );
+        }
+    }
+
+    @Test
+    public void addAndRemoveImport() {
+        try {
+            createFiles();
+            put( "d.less", ".d { color: black; }" );
+            change( "a.less", "@import \"d.less\"; .a { color: @color; .m(); }" );
+            assertEquals( "[a.less, d.less]", assertCompile().toString() );
+            assertTrue( compiler.compile( true ).contains( ".d{" ) );
+
+            change( "a.less", ".a { color: @color; }" );
+            assertEquals( "[a.less]", assertCompile().toString() );
+            assertFalse( compiler.compile( true ).contains( ".d{" ) );
+
+            change( "main.less", "@import \"vars.less\"; @import \"mixins.less\"; @import \"a.less\"; .main { color: @color; }" );
+            assertCompile();
+            assertFalse( compiler.compile( true ).contains( ".b{" ) );
+        } finally {
+            delete( dir );
+        }
+    }
+
+    @Test
+    public void changedDeduplication() {
+        try {
+            createFiles();
+            // c.less is now imported from a.less, the root import of the unchanged b.less is replayed as skipped
+            change( "a.less", "@import \"c.less\"; .a { color: @color; .m(); }" );
+            assertEquals( "[a.less]", assertCompile().toString() );
+            // and imported from b.less again
+            change( "a.less", ".a { color: @color; .m(); }" );
+            assertEquals( "[a.less]", assertCompile().toString() );
+        } finally {
+            delete( dir );
+        }
+    }
+
+    @Test
+    public void changedDeduplicationInRule() {
+        try {
+            createFiles();
+            // the content of a import in a rule is part of the segment of b.less
+            change( "b.less", ".b { @import \"c.less\"; width: @width; }" );
+            assertEquals( "[b.less, c.less]", assertCompile().toString() );
+            // the unchanged b.less can not be replayed because c.less is already imported, fallback to a full parse
+            change( "a.less", "@import \"c.less\"; .a { color: @color; .m(); }" );
+            assertEquals( "[a.less, c.less, main.less, vars.less, mixins.less, a.less, c.less, b.less]", assertCompile().toString() );
+            change( "a.less", ".a { color: @color; .m(); }" );
+            assertEquals( "[a.less, main.less, vars.less, mixins.less, a.less, b.less, c.less]", assertCompile().toString() );
+        } finally {
+            delete( dir );
+        }
+    }
+
+    @Test
+    public void changedFileOnDisk() throws Exception {
+        File lessFile = new File( dir, "main.less" );
+        File vars = new File( dir, "vars.less" );
+        try {
+            write( lessFile, "@import \"vars\"; .a { color: @color; }" );
+            write( vars, "@color: #f00;" );
+            IncrementalCompiler compiler = new IncrementalCompiler( lessFile );
+            assertEquals( ".a{color:#f00}", compiler.compile( true ) );
+
+            // detected by the time stamp without a call of changed()
+            write( vars, "@color: #0f0;" );
+            assertTrue( vars.setLastModified( vars.lastModified() + 10000 ) );
+            assertEquals( ".a{color:#0f0}", compiler.compile( true ) );
+            assertEquals( Less.compile( lessFile, true ), compiler.compile( true ) );
+        } finally {
+            delete( dir );
+        }
+    }
+}
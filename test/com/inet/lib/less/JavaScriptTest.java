@@ -0,0 +1,53 @@
+package com.inet.lib.less;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class JavaScriptTest {
+
+    @Test
+    public void sameScriptWithOtherVariables() {
+        assertEquals( ".a{width:2}.b{width:4}", Less.compile( null, ".a { @x: 1; width: `parseInt(this.x.toJS()) * 2`; } .b { @x: 2; width: `parseInt(this.x.toJS()) * 2`; }", true ) );
+    }
+
+    @Test
+    public void placeHolder() {
+        assertEquals( ".a{width:2}.b{width:4}", Less.compile( null, ".a { @x: 1; width: `@{x} * 2`; } .b { @x: 2; width: `@{x} * 2`; }", true ) );
+    }
+
+    @Test
+    public void nested() {
+        assertEquals( ".a{width:3}", Less.compile( null, "@y: `1 + 1`; .a { width: `parseInt(this.y.toJS()) + 1`; }", true ) );
+    }
+
+    @Test
+    public void threads() throws Exception {
+        final String less = ".a { @x: 1; width: `parseInt(this.x.toJS()) * 2`; } .b { @x: 2; width: `parseInt(this.x.toJS()) * 2`; } .c { width: `@{x} + 1`; @x: 3; }";
+        final String expected = Less.compile( null, less, true );
+        ExecutorService executor = Executors.newFixedThreadPool( 4 );
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for( int i = 0; i < 16; i++ ) {
+                results.add( executor.submit( new Callable<String>() {
+                    @Override
+                    public String call() {
+                        return Less.compile( null, less, true );
+                    }
+                } ) );
+            }
+            for( Future<String> result : results ) {
+                assertEquals( expected, result.get() );
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.inet.lib.less;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LessLookAheadReaderTest {
+
+    /**
+     * Create a reader for a file. The buffer of the decoded file has the size of the file.
+     */
+    private static LessLookAheadReader reader( String content ) throws Exception {
+        File file = File.createTempFile( "jlessc", ".less" );
+        try {
+            Files.write( file.toPath(), content.getBytes( StandardCharsets.UTF_8 ) );
+            return new LessLookAheadReader( new MappedFileReader( file ), file.getName(), false, false );
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void mixinParamVariableAtEnd() throws Exception {
+        LessLookAheadReader reader = reader( ".m(@" );
+        assertEquals( ';', reader.nextBlockMarker() );
+        assertEquals( '.', reader.read() );
+        assertEquals( 'm', reader.read() );
+        assertEquals( '(', reader.read() );
+        assertTrue( reader.nextIsMixinParam( false ) );
+    }
+
+    @Test
+    public void mixinParamPointAtEnd() throws Exception {
+        LessLookAheadReader reader = reader( ".m(." );
+        assertEquals( ';', reader.nextBlockMarker() );
+        assertEquals( '.', reader.read() );
+        assertEquals( 'm', reader.read() );
+        assertEquals( '(', reader.read() );
+        assertFalse( reader.nextIsMixinParam( false ) );
+    }
+}
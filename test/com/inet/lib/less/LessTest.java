@@ -27,10 +27,16 @@
 package com.inet.lib.less;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.io.StringWriter;
 import java.net.URI;
 import java.net.URL;
+import java.nio.channels.Channels;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
@@ -91,4 +97,53 @@ public void compile() throws Exception {
         boolean compress = cssFile.getName().endsWith( ".css_x" ) || lessFile.getParentFile().getName().equals( "compression" );
         assertEquals( cssData, Less.compile( lessFile, compress ) );
     }
+
+    @Test
+    public void precompiled() throws Exception {
+        String cssData = new String( Files.readAllBytes( cssFile.toPath() ), StandardCharsets.UTF_8 );
+
+        boolean compress = cssFile.getName().endsWith( ".css_x" ) || lessFile.getParentFile().getName().equals( "compression" );
+        File precompiledFile = File.createTempFile( "jlessc", ".lessc" );
+        try {
+            Less.precompile( lessFile, precompiledFile, new ReaderFactory() );
+            try( InputStream input = new FileInputStream( precompiledFile ) ) {
+                assertNotNull( PrecompiledLess.read( input, lessFile.toURI().toURL(), new ReaderFactory() ) );
+            }
+            StringBuilder css = new StringBuilder();
+            Less.compile( lessFile, new CompileOptions().setCompress( compress ).setPrecompiledFile( precompiledFile ), css );
+            assertEquals( cssData, css.toString() );
+        } finally {
+            precompiledFile.delete();
+        }
+    }
+
+    @Test
+    public void incremental() throws Exception {
+        String cssData = new String( Files.readAllBytes( cssFile.toPath() ), StandardCharsets.UTF_8 );
+
+        boolean compress = cssFile.getName().endsWith( ".css_x" ) || lessFile.getParentFile().getName().equals( "compression" );
+        IncrementalCompiler compiler = new IncrementalCompiler( lessFile );
+        assertEquals( cssData, compiler.compile( compress ) );
+        // second run replay the unchanged files
+        assertEquals( cssData, compiler.compile( compress ) );
+    }
+
+    @Test
+    public void streaming() throws Exception {
+        String cssData = new String( Files.readAllBytes( cssFile.toPath() ), StandardCharsets.UTF_8 );
+
+        boolean compress = cssFile.getName().endsWith( ".css_x" ) || lessFile.getParentFile().getName().equals( "compression" );
+        CompileOptions options = new CompileOptions().setCompress( compress );
+        StringWriter writer = new StringWriter();
+        Less.compile( lessFile, options, writer );
+        assertEquals( cssData, writer.toString() );
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        Less.compile( lessFile, options, output );
+        assertEquals( cssData, new String( output.toByteArray(), StandardCharsets.UTF_8 ) );
+
+        output.reset();
+        Less.compile( lessFile, options, Channels.newChannel( output ) );
+        assertEquals( cssData, new String( output.toByteArray(), StandardCharsets.UTF_8 ) );
+    }
 }
@@ -0,0 +1,33 @@
+package com.inet.lib.less;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class MixinIndexTest {
+
+    @Test
+    public void namespace() {
+        assertEquals( ".a{color:#f00}.b{margin:0}", Less.compile( null, "#ns { .m() { color: red; } .n() { margin: 0; } } .a { #ns > .m(); } .b { #ns.n(); }", true ) );
+    }
+
+    @Test
+    public void severalRules() {
+        assertEquals( ".a{color:#f00;margin:0;padding:0}", Less.compile( null, "#ns { .m() { color: red; } .x, .m() { margin: 0; } .m, .m() { padding: 0; } } .a { #ns > .m(); }", true ) );
+    }
+
+    @Test
+    public void inheritedScope() {
+        assertEquals( ".a{color:#f00}", Less.compile( null, "#ns { .m() { .inner(); } .inner() { color: red; } } .a { #ns > .m(); }", true ) );
+    }
+
+    @Test
+    public void undefined() {
+        try {
+            Less.compile( null, "#ns { .m() { color: red; } } .a { #ns > .x(); }", true );
+            fail( "LessException expected" );
+        } catch( LessException ex ) {
+            assertTrue( ex.getMessage(), ex.getMessage().contains( "Undefined mixin" ) );
+        }
+    }
+}
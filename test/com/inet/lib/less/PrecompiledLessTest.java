@@ -0,0 +1,116 @@
+package com.inet.lib.less;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.StringReader;
+import java.net.URL;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import static com.inet.lib.less.TestFiles.*;
+import static org.junit.Assert.*;
+
+public class PrecompiledLessTest {
+
+    private static File createFiles( String lib ) throws Exception {
+        File dir = createTempDirectory();
+        write( new File( dir, "main.less" ), "@import \"lib.less\"; .a { color: @color; .m(); }" );
+        write( new File( dir, "lib.less" ), lib );
+        return dir;
+    }
+
+    private static LessParser read( File lessFile, byte[] data ) throws Exception {
+        return PrecompiledLess.read( new ByteArrayInputStream( data ), lessFile.toURI().toURL(), new ReaderFactory() );
+    }
+
+    private static String compile( File lessFile, File precompiled ) throws Exception {
+        StringBuilder css = new StringBuilder();
+        Less.compile( lessFile, new CompileOptions().setCompress( true ).setPrecompiledFile( precompiled ), css );
+        return css.toString();
+    }
+
+    @Test
+    public void changedSource() throws Exception {
+        File dir = createFiles( "@color: red; .m() { margin: 0; }" );
+        try {
+            File lessFile = new File( dir, "main.less" );
+            File lib = new File( dir, "lib.less" );
+            File precompiled = new File( dir, "main.lessc" );
+            Less.precompile( lessFile, precompiled, new ReaderFactory() );
+            byte[] data = Files.readAllBytes( precompiled.toPath() );
+            assertNotNull( read( lessFile, data ) );
+            assertEquals( ".a{color:#f00;margin:0}", compile( lessFile, precompiled ) );
+
+            // only the time stamp
+            assertTrue( lib.setLastModified( lib.lastModified() - 10000 ) );
+            assertNull( read( lessFile, data ) );
+
+            // content and time stamp
+            write( lib, "@color: blue; .m() { padding: 0; }" );
+            assertTrue( lib.setLastModified( lib.lastModified() + 20000 ) );
+            assertNull( read( lessFile, data ) );
+            assertEquals( ".a{color:#00f;padding:0}", compile( lessFile, precompiled ) );
+            assertEquals( Less.compile( lessFile, true ), compile( lessFile, precompiled ) );
+        } finally {
+            delete( dir );
+        }
+    }
+
+    @Test
+    public void corruptData() throws Exception {
+        File dir = createFiles( "@color: red; .m() { margin: 0; }" );
+        try {
+            File lessFile = new File( dir, "main.less" );
+            File precompiled = new File( dir, "main.lessc" );
+            Less.precompile( lessFile, precompiled, new ReaderFactory() );
+            byte[] data = Files.readAllBytes( precompiled.toPath() );
+
+            for( int length : new int[] { 0, 3, 8, data.length / 2, data.length - 1 } ) {
+                assertNull( "truncated to " + length, read( lessFile, Arrays.copyOf( data, length ) ) );
+            }
+
+            byte[] wrongVersion = data.clone();
+            wrongVersion[7]++;
+            assertNull( read( lessFile, wrongVersion ) );
+
+            byte[] wrongEnd = data.clone();
+            wrongEnd[data.length - 1]++;
+            assertNull( read( lessFile, wrongEnd ) );
+
+            Files.write( precompiled.toPath(), Arrays.copyOf( data, data.length / 2 ) );
+            assertEquals( ".a{color:#f00;margin:0}", compile( lessFile, precompiled ) );
+        } finally {
+            delete( dir );
+        }
+    }
+
+    @Test
+    public void otherLibraryVersion() throws Exception {
+        File dir = createFiles( "@color: red; .m() { margin: 0; }" );
+        try {
+            File lessFile = new File( dir, "main.less" );
+            URL baseURL = lessFile.toURI().toURL();
+            LessParser parser = new LessParser();
+            parser.parse( baseURL, new StringReader( "@import \"lib.less\"; .a { color: @color; .m(); }" ), new ReaderFactory() );
+            ByteArrayOutputStream data = new ByteArrayOutputStream();
+            PrecompiledLess.write( parser, baseURL, data, "0.0-other" );
+            assertNull( read( lessFile, data.toByteArray() ) );
+        } finally {
+            delete( dir );
+        }
+    }
+
+    @Test
+    public void missingFile() throws Exception {
+        File dir = createFiles( "@color: red; .m() { margin: 0; }" );
+        try {
+            File lessFile = new File( dir, "main.less" );
+            assertEquals( ".a{color:#f00;margin:0}", compile( lessFile, new File( dir, "missing.lessc" ) ) );
+        } finally {
+            delete( dir );
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.inet.lib.less;
+
+import java.io.File;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+
+import static com.inet.lib.less.TestFiles.*;
+import static org.junit.Assert.*;
+
+public class PrefetchReaderFactoryTest {
+
+    @Test
+    public void imports() throws Exception {
+        File dir = createTempDirectory();
+        ExecutorService executor = Executors.newFixedThreadPool( 4 );
+        try {
+            File lessFile = new File( dir, "main.less" );
+            write( lessFile, "@import \"a.less\";\n" //
+                            + "@import (reference) 'b';\n" //
+                            + "@import url(\"c.less\") print;\n" //
+                            + "@import \"style.css\";\n" //
+                            + "@import \"@{name}.less\";\n" //
+                            + "@name: d;\n" //
+                            + "@import (css) \"f.less\";\n" //
+                            + ".x { .y; color: @a; }" );
+            write( new File( dir, "a.less" ), "@import \"e.less\"; @a: red; .a { color: @a; }" );
+            write( new File( dir, "b.less" ), ".y { margin: 0; } @import \"a.less\";" );
+            write( new File( dir, "c.less" ), ".c { color: black; }" );
+            write( new File( dir, "d.less" ), ".d { color: blue; }" );
+            write( new File( dir, "e.less" ), ".e { color: green; }" );
+
+            String expected = Less.compile( lessFile, true );
+            CountingReaderFactory counter = new CountingReaderFactory( 20 );
+            assertEquals( expected, Less.compile( lessFile, true, new PrefetchReaderFactory( counter, executor ) ) );
+
+            for( String name : new String[] { "a.less", "b.less", "c.less", "d.less", "e.less" } ) {
+                assertEquals( name, 1, counter.count( name ) );
+            }
+            assertEquals( 0, counter.count( "style.css" ) );
+            assertEquals( 0, counter.count( "f.less" ) );
+        } finally {
+            executor.shutdown();
+            delete( dir );
+        }
+    }
+
+    @Test
+    public void missingOptionalImport() throws Exception {
+        File dir = createTempDirectory();
+        ExecutorService executor = Executors.newFixedThreadPool( 2 );
+        try {
+            File lessFile = new File( dir, "main.less" );
+            write( lessFile, "@import (optional) \"missing.less\"; .x { color: red; }" );
+            CountingReaderFactory counter = new CountingReaderFactory( 20 );
+            assertEquals( ".x{color:#f00}", Less.compile( lessFile, true, new PrefetchReaderFactory( counter, executor ) ) );
+            assertEquals( 1, counter.count( "missing.less" ) );
+        } finally {
+            executor.shutdown();
+            delete( dir );
+        }
+    }
+
+    @Test
+    public void missingImport() throws Exception {
+        File dir = createTempDirectory();
+        ExecutorService executor = Executors.newFixedThreadPool( 2 );
+        try {
+            File lessFile = new File( dir, "main.less" );
+            write( lessFile, "@import \"missing\"; .x { color: red; }" );
+            try {
+                Less.compile( lessFile, true, new PrefetchReaderFactory( new CountingReaderFactory( 20 ), executor ) );
+                fail( "LessException expected" );
+            } catch( LessException ex ) {
+                assertTrue( ex.getMessage(), ex.getMessage().contains( "missing.less" ) );
+            }
+        } finally {
+            executor.shutdown();
+            delete( dir );
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.inet.lib.less;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.net.URL;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ReferenceImportTest {
+
+    private static final String LIB = ".a { color: red; } .b { color: blue; .c { margin: 0; } } @media print { .a { color: black; } .d { x: y; } } .e { @media (min-width: 10px) { .f { g: h; } } } .m() { width: 1px; } .g { .m(); } .broken { width: @undefined; }";
+
+    private String compile( String less ) throws Exception {
+        ReaderFactory readerFactory = new ReaderFactory() {
+            @Override
+            public Reader create( URL url ) throws IOException {
+                return new StringReader( LIB );
+            }
+        };
+        return Less.compile( new URL( "file:/reference/main.less" ), "@import (reference) \"lib.less\"; " + less, true, readerFactory );
+    }
+
+    @Test
+    public void hidden() throws Exception {
+        assertEquals( "", compile( "" ) );
+        assertEquals( ".x{width:1px}", compile( ".x { .g; }" ) );
+    }
+
+    @Test
+    public void extended() throws Exception {
+        assertEquals( ".x{color:#f00}@media print{.x{color:#000}}", compile( ".x:extend(.a) {}" ) );
+        assertEquals( ".b .x{margin:0}", compile( ".x:extend(.c all) {}" ) );
+        assertEquals( "@media print{.x{x:y}}", compile( ".x:extend(.d) {}" ) );
+        assertEquals( "@media (min-width: 10px){.e .x{g:h}}", compile( ".x:extend(.f all) {}" ) );
+    }
+
+    @Test
+    public void extendedInChain() throws Exception {
+        assertEquals( ".x,.y{color:#f00}@media print{.x,.y{color:#000}}", compile( ".x:extend(.a) {} .y:extend(.x) {}" ) );
+    }
+
+    @Test
+    public void extendInMixin() throws Exception {
+        assertEquals( ".x{color:#00f}", compile( ".n() { &:extend(.b); } .x { .n(); }" ) );
+    }
+
+    @Test
+    public void extendInMixinOfDeclarations() throws Exception {
+        assertEquals( ".x{color:#f00}@media print{.x{color:#000}}", compile( ".n() { &:extend(.a); } .x { .n(); }" ) );
+        assertEquals( ".x .q{color:#f00}@media print{.x .q{color:#000}}", compile( ".n() { .q:extend(.a) {} } .x { .n(); }" ) );
+    }
+
+    @Test
+    public void errorInHiddenRule() throws Exception {
+        // the declarations of a reference rule without matching extends are not evaluated
+        assertEquals( ".x{color:#f00}@media print{.x{color:#000}}", compile( ".x:extend(.a) {}" ) );
+        try {
+            compile( ".x:extend(.broken) {}" );
+            fail( "LessException expected" );
+        } catch( LessException ex ) {
+            assertTrue( ex.getMessage(), ex.getMessage().contains( "@undefined" ) );
+        }
+    }
+}
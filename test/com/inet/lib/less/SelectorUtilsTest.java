@@ -0,0 +1,42 @@
+package com.inet.lib.less;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SelectorUtilsTest {
+
+    @Test
+    public void mergeWithoutPlaceholder() {
+        assertArrayEquals( new String[] { ".a .x", ".b .x" }, SelectorUtils.merge( new String[] { ".a", ".b" }, new String[] { ".x" } ) );
+        assertArrayEquals( new String[] { ".y" }, SelectorUtils.merge( new String[] { "" }, new String[] { ".y" } ) );
+    }
+
+    @Test
+    public void mergeWithPlaceholder() {
+        assertArrayEquals( new String[] { ".a:hover", ".b:hover" }, SelectorUtils.merge( new String[] { ".a", ".b" }, new String[] { "&:hover" } ) );
+        assertArrayEquals( new String[] { ".x .a", ".x .b" }, SelectorUtils.merge( new String[] { ".a", ".b" }, new String[] { ".x &" } ) );
+    }
+
+    @Test
+    public void mergeWithMultiplePlaceholders() {
+        assertArrayEquals( new String[] { ".a + .a", ".a + .b", ".b + .a", ".b + .b", ".a .y", ".b .y" }, SelectorUtils.merge( new String[] { ".a", ".b" }, new String[] { "& + &", ".y" } ) );
+        assertArrayEquals( new String[] { ".a.a.a", ".a.a.b", ".a.b.a", ".a.b.b", ".b.a.a", ".b.a.b", ".b.b.a", ".b.b.b" }, SelectorUtils.merge( new String[] { ".a", ".b" }, new String[] { "&&&" } ) );
+    }
+
+    @Test
+    public void placeHolderIndex() {
+        assertEquals( -1, SelectorUtils.placeHolderIndex( ".a .b" ) );
+        assertEquals( -1, SelectorUtils.placeHolderIndex( "@media print" ) );
+        assertEquals( 0, SelectorUtils.placeHolderIndex( "@{name}" ) );
+        assertEquals( 2, SelectorUtils.placeHolderIndex( ".a@{name}" ) );
+        assertNull( SelectorUtils.placeHolderIndexes( new String[] { ".a", "@media print" } ) );
+        assertArrayEquals( new int[] { -1, 3 }, SelectorUtils.placeHolderIndexes( new String[] { ".a", ".b-@{x}" } ) );
+    }
+
+    @Test
+    public void placeHolderInNames() {
+        assertEquals( ".a-x{border-top:0}", Less.compile( null, "@n: x; @p: top; .a-@{n} { border-@{p}: 0; }", true ) );
+        assertEquals( "@media print{.x{color:#f00}}", Less.compile( null, "@m: print; @media @{m} { .x { color: red; } }", true ) );
+    }
+}
@@ -0,0 +1,53 @@
+package com.inet.lib.less;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SourceMapTest {
+
+    private void assertSourceMap( String less, boolean compress, String expectedCss, String expectedMappings ) {
+        SourceMap sourceMap = new SourceMap( "a.css" );
+        StringBuilder css = new StringBuilder();
+        try {
+            Less.compile( null, less, new CompileOptions().setCompress( compress ).setSourceMap( sourceMap ), css );
+        } catch( IOException ex ) {
+            throw new AssertionError( ex );
+        }
+        assertEquals( expectedCss, css.toString() );
+        assertEquals( "{\"version\":3,\"file\":\"a.css\",\"sources\":[\"input\"],\"names\":[],\"mappings\":\"" + expectedMappings + "\"}", sourceMap.toString() );
+    }
+
+    @Test
+    public void rule() {
+        assertSourceMap( ".a {\n  color: red;\n  margin: 0;\n}\n", false, ".a {\n  color: red;\n  margin: 0;\n}\n", "AAAI;EACQ;EACD" );
+        assertSourceMap( ".a {\n  color: red;\n  margin: 0;\n}\n", true, ".a{color:#f00;margin:0}", "AAAI,GACQ,WACD" );
+    }
+
+    @Test
+    public void mixin() {
+        assertSourceMap( ".m() {\n  color: red;\n}\n.b {\n  .m();\n}\n", false, ".b {\n  color: red;\n}\n", "AAGI;EAFQ" );
+    }
+
+    @Test
+    public void media() {
+        assertSourceMap( "@media print {\n  .a {\n    b: 1;\n  }\n}\n", true, "@media print{.a{b:1}}", "AAAc,aACR,GACE" );
+    }
+
+    @Test
+    public void imports() throws Exception {
+        URL url = LessTest.class.getResource( "samples/bootstrap/bootstrap-3.3.1.less" );
+        File lessFile = new File( url.toURI() );
+        SourceMap sourceMap = new SourceMap( null );
+        StringBuilder css = new StringBuilder();
+        Less.compile( lessFile, new CompileOptions().setSourceMap( sourceMap ), css );
+        assertEquals( Less.compile( lessFile, false ), css.toString() );
+        String json = sourceMap.toString();
+        assertTrue( json, json.startsWith( "{\"version\":3,\"sources\":[\"bootstrap-3.3.1/normalize.less\"," ) );
+        assertTrue( json, json.contains( "\"bootstrap-3.3.1/mixins/vendor-prefixes.less\"" ) );
+    }
+}
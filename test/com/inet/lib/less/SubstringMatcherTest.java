@@ -0,0 +1,50 @@
+package com.inet.lib.less;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SubstringMatcherTest {
+
+    private static SubstringMatcher matcher( String... patterns ) {
+        SubstringMatcher matcher = new SubstringMatcher();
+        for( String pattern : patterns ) {
+            matcher.add( pattern );
+        }
+        return matcher;
+    }
+
+    @Test
+    public void empty() {
+        assertFalse( matcher().containsAny( ".a" ) );
+        assertTrue( matcher( "" ).containsAny( ".a" ) );
+    }
+
+    @Test
+    public void simple() {
+        SubstringMatcher matcher = matcher( ".btn", "#nav" );
+        assertTrue( matcher.containsAny( ".btn" ) );
+        assertTrue( matcher.containsAny( ".a .btn-primary" ) );
+        assertTrue( matcher.containsAny( "div#nav > li" ) );
+        assertFalse( matcher.containsAny( ".bt .tn" ) );
+        assertFalse( matcher.containsAny( "" ) );
+    }
+
+    @Test
+    public void failureTransitions() {
+        SubstringMatcher matcher = matcher( "abcx", "bcd", "cde" );
+        assertTrue( matcher.containsAny( "abcde" ) );
+        assertTrue( matcher.containsAny( "abcd" ) );
+        assertTrue( matcher.containsAny( "aabcx" ) );
+        assertFalse( matcher.containsAny( "abcbc" ) );
+        assertTrue( matcher( "aab" ).containsAny( "aaab" ) );
+    }
+
+    @Test
+    public void addAfterSearch() {
+        SubstringMatcher matcher = matcher( ".a" );
+        assertFalse( matcher.containsAny( ".b" ) );
+        matcher.add( ".b" );
+        assertTrue( matcher.containsAny( ".b" ) );
+    }
+}
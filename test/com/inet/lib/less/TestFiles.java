@@ -0,0 +1,86 @@
+package com.inet.lib.less;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Helpers for tests with less files in a temporary directory.
+ */
+class TestFiles {
+
+    /**
+     * A ReaderFactory that count the reads of every file. Every read can be delayed to simulate a slow file system.
+     */
+    static class CountingReaderFactory extends ReaderFactory {
+        private final Map<String, AtomicInteger> counts = new ConcurrentHashMap<>();
+
+        private final long                       delay;
+
+        CountingReaderFactory() {
+            this( 0 );
+        }
+
+        CountingReaderFactory( long delay ) {
+            this.delay = delay;
+        }
+
+        @Override
+        public Reader create( URL url ) throws IOException {
+            String name = new File( url.getPath() ).getName();
+            counts.putIfAbsent( name, new AtomicInteger() );
+            counts.get( name ).incrementAndGet();
+            if( delay > 0 ) {
+                try {
+                    Thread.sleep( delay );
+                } catch( InterruptedException ex ) {
+                    throw new InterruptedIOException();
+                }
+            }
+            return super.create( url );
+        }
+
+        int count( String name ) {
+            AtomicInteger count = counts.get( name );
+            return count == null ? 0 : count.get();
+        }
+
+        int count() {
+            int sum = 0;
+            for( AtomicInteger count : counts.values() ) {
+                sum += count.get();
+            }
+            return sum;
+        }
+
+        void reset() {
+            counts.clear();
+        }
+    }
+
+    static File createTempDirectory() {
+        try {
+            return Files.createTempDirectory( "jlessc" ).toFile();
+        } catch( IOException ex ) {
+            throw new RuntimeException( ex );
+        }
+    }
+
+    static void write( File file, String content ) throws IOException {
+        Files.write( file.toPath(), content.getBytes( StandardCharsets.UTF_8 ) );
+    }
+
+    static void delete( File dir ) {
+        for( File file : dir.listFiles() ) {
+            file.delete();
+        }
+        dir.delete();
+    }
+}
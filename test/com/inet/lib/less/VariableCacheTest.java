@@ -0,0 +1,28 @@
+package com.inet.lib.less;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class VariableCacheTest {
+
+    @Test
+    public void callerScope() {
+        assertEquals( ".a{color:#f00}.b{color:#00f}.c{color:#0f0}", Less.compile( null, "@c: #0f0; .m() { color: @c; } .a { @c: red; .m(); } .b { @c: blue; .m(); } .c { .m(); }", true ) );
+    }
+
+    @Test
+    public void recursion() {
+        assertEquals( ".w-1{width:1px}.w-2{width:2px}.w-3{width:3px}", Less.compile( null, ".loop(@i) when (@i > 0) { .w-@{i} { width: (@i * 1px); } .loop(@i - 1); } .loop(3);", true ) );
+    }
+
+    @Test
+    public void returnedVariables() {
+        assertEquals( ".a{width:1px;height:2px}", Less.compile( null, "@w: 0; .m(@v) { @w: @v; } .a { .m(1px); width: @w; .n(); height: @h; } .n() { @h: 2px; }", true ) );
+    }
+
+    @Test
+    public void guardParameters() {
+        assertEquals( ".a{color:#000}.b{color:#fff}", Less.compile( null, "@x: 5; .m(@x) when (@x > 3) { color: black; } .m(@x) when (@x <= 3) { color: white; } .a { .m(@x); } .b { .m(1); }", true ) );
+    }
+}